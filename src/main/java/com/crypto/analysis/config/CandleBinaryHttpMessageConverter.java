@@ -0,0 +1,123 @@
+package com.crypto.analysis.config;
+
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+
+import com.crypto.analysis.dto.CandleBlock;
+import com.crypto.analysis.dto.CandlePage;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Writes a {@link CandlePage} as packed little-endian columns, selected with
+ * {@code Accept: application/x-candles}. Layout (all offsets 8-byte aligned so the
+ * browser can map every column as a Float64Array without copying):
+ * <pre>
+ *  0  "CNDL"            magic
+ *  4  u8  version (1)
+ *  5  u8  flags         bit 0: volume column present
+ *  6  u16 reserved
+ *  8  i32 count
+ * 12  i32 pageNumber
+ * 16  i32 pageSize
+ * 20  i32 totalPages
+ * 24  i64 totalElements
+ * 32  f64[count] time (epoch millis), open, high, low, close[, volume]
+ * </pre>
+ */
+public class CandleBinaryHttpMessageConverter extends AbstractHttpMessageConverter<CandlePage> {
+
+    public static final String MEDIA_TYPE_VALUE = "application/x-candles";
+    public static final MediaType MEDIA_TYPE = MediaType.parseMediaType(MEDIA_TYPE_VALUE);
+
+    public static final int HEADER_BYTES = 32;
+    private static final int CHUNK_ROWS = 1024;
+
+    public CandleBinaryHttpMessageConverter() {
+        super(MEDIA_TYPE);
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return CandlePage.class.isAssignableFrom(clazz);
+    }
+
+    @Override
+    protected boolean canRead(MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    protected CandlePage readInternal(Class<? extends CandlePage> clazz, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("Binary candles are write-only", inputMessage);
+    }
+
+    @Override
+    protected Long getContentLength(CandlePage page, MediaType contentType) {
+        CandleBlock c = page.getContent();
+        return (long) HEADER_BYTES + (long) c.size() * 8 * (hasVolume(c) ? 6 : 5);
+    }
+
+    @Override
+    protected void writeInternal(CandlePage page, HttpOutputMessage outputMessage) throws IOException {
+        CandleBlock c = page.getContent();
+        boolean volume = hasVolume(c);
+        OutputStream out = outputMessage.getBody();
+
+        ByteBuffer buf = ByteBuffer.allocate(Math.max(HEADER_BYTES, CHUNK_ROWS * 8)).order(ByteOrder.LITTLE_ENDIAN);
+        putHeader(buf, c.size(), volume, page.getPageNumber(), page.getPageSize(), page.getTotalPages(), page.getTotalElements());
+        flush(buf, out);
+
+        for (int col = 0; col < (volume ? 6 : 5); col++) {
+            for (int i = 0; i < c.size(); i++) {
+                buf.putDouble(column(c, col, i));
+                if (!buf.hasRemaining()) flush(buf, out);
+            }
+            flush(buf, out);
+        }
+        out.flush();
+    }
+
+    /** Writes the 32-byte header at the buffer's position (little endian). */
+    public static void putHeader(ByteBuffer buf, int count, boolean volume,
+                                 int pageNumber, int pageSize, int totalPages, long totalElements) {
+        buf.put((byte) 'C').put((byte) 'N').put((byte) 'D').put((byte) 'L')
+                .put((byte) 1)
+                .put((byte) (volume ? 1 : 0))
+                .putShort((short) 0)
+                .putInt(count)
+                .putInt(pageNumber)
+                .putInt(pageSize)
+                .putInt(totalPages)
+                .putLong(totalElements);
+    }
+
+    private static double column(CandleBlock c, int col, int i) {
+        switch (col) {
+            case 0:  return c.time(i);
+            case 1:  return c.open(i);
+            case 2:  return c.high(i);
+            case 3:  return c.low(i);
+            case 4:  return c.close(i);
+            default: return c.volume(i);
+        }
+    }
+
+    private static boolean hasVolume(CandleBlock c) {
+        for (int i = 0; i < c.size(); i++) {
+            if (!Double.isNaN(c.volume(i))) return true;
+        }
+        return false;
+    }
+
+    private static void flush(ByteBuffer buf, OutputStream out) throws IOException {
+        out.write(buf.array(), 0, buf.position());
+        buf.clear();
+    }
+}
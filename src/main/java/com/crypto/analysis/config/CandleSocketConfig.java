@@ -0,0 +1,27 @@
+package com.crypto.analysis.config;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.socket.config.annotation.EnableWebSocket;
+import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
+
+import com.crypto.analysis.controller.CandleSocketHandler;
+
+@Configuration
+@EnableWebSocket
+@RequiredArgsConstructor
+public class CandleSocketConfig implements WebSocketConfigurer {
+
+    private final CandleSocketHandler candleSocketHandler;
+
+    @Value("${cors.allowed-origins}")
+    private String allowed;
+
+    @Override
+    public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
+        registry.addHandler(candleSocketHandler, "/ws/candles")
+            .setAllowedOrigins(allowed.split(","));
+    }
+}
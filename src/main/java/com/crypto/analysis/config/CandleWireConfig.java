@@ -0,0 +1,20 @@
+package com.crypto.analysis.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+/**
+ * Adds the packed candle format after the default converters, so JSON stays the default and
+ * the binary layout is only chosen for {@code Accept: application/x-candles}.
+ */
+@Configuration
+public class CandleWireConfig implements WebMvcConfigurer {
+
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        converters.add(new CandleBinaryHttpMessageConverter());
+    }
+}
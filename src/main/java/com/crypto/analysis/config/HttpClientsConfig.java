@@ -1,23 +1,90 @@
 package com.crypto.analysis.config;
 
+import io.netty.channel.ChannelOption;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
 import org.springframework.web.reactive.function.client.WebClient;
 import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
 import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
 @Configuration
 public class HttpClientsConfig {
 
+    // wide 1m windows do not fit into the 256KB default buffer
+    private static final int MAX_RESPONSE_BYTES = 16 * 1024 * 1024;
+    private static final Duration MAX_IDLE = Duration.ofSeconds(30);
+
     @Bean
-    public WebClient solrApiWebClient(@Value("${solrApi.baseUrl}") String baseUrl) {
+    public WebClient solrApiWebClient(@Value("${solrApi.baseUrl}") String baseUrl,
+                                      @Value("${solrApi.timeout-ms:10000}") long timeoutMs,
+                                      @Value("${solrApi.pool.max-connections:50}") int maxConnections) {
+        // keep-alive pool of its own, so a slow Solr app cannot starve other WebClient users
+        ConnectionProvider pool = ConnectionProvider.builder("solr-api")
+            .maxConnections(maxConnections)
+            .pendingAcquireTimeout(Duration.ofMillis(timeoutMs))
+            .maxIdleTime(MAX_IDLE)
+            .build();
+        HttpClient httpClient = HttpClient.create(pool)
+            .compress(true)
+            .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) Math.min(timeoutMs, Integer.MAX_VALUE))
+            .responseTimeout(Duration.ofMillis(timeoutMs));
         return WebClient.builder()
             .baseUrl(baseUrl)
-            .clientConnector(new ReactorClientHttpConnector(HttpClient.create().compress(true)))
+            .clientConnector(new ReactorClientHttpConnector(httpClient))
+            .codecs(codecs -> codecs.defaultCodecs().maxInMemorySize(MAX_RESPONSE_BYTES))
             .defaultHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
             .build();
     }
+
+    @Bean
+    public WebClient binanceWebClient(@Value("${binance.api.base-url:https://api.binance.com}") String baseUrl,
+                                      @Value("${binance.api.timeout-ms:10000}") long timeoutMs) {
+        HttpClient httpClient = HttpClient.create(ConnectionProvider.builder("binance").maxConnections(20).maxIdleTime(MAX_IDLE).build())
+            .compress(true)
+            .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) Math.min(timeoutMs, Integer.MAX_VALUE))
+            .responseTimeout(Duration.ofMillis(timeoutMs));
+        return WebClient.builder()
+            .baseUrl(baseUrl)
+            .clientConnector(new ReactorClientHttpConnector(httpClient))
+            .codecs(codecs -> codecs.defaultCodecs().maxInMemorySize(MAX_RESPONSE_BYTES))
+            .build();
+    }
+
+    /**
+     * Blocking client for the Solr app: pooled keep-alive connections and finite connect,
+     * pool-wait and read timeouts (the application-wide RestTemplate has none).
+     */
+    @Bean
+    public RestTemplate solrApiRestTemplate(@Value("${solrApi.timeout-ms:10000}") long timeoutMs,
+                                            @Value("${solrApi.pool.max-connections:50}") int maxConnections) {
+        PoolingHttpClientConnectionManager pool = new PoolingHttpClientConnectionManager(MAX_IDLE.toMillis(), TimeUnit.MILLISECONDS);
+        pool.setMaxTotal(maxConnections);
+        pool.setDefaultMaxPerRoute(maxConnections);
+        pool.setValidateAfterInactivity(2000);
+
+        int timeout = (int) Math.min(timeoutMs, Integer.MAX_VALUE);
+        CloseableHttpClient client = HttpClientBuilder.create()
+            .setConnectionManager(pool)
+            .setDefaultRequestConfig(RequestConfig.custom()
+                .setConnectTimeout(timeout)
+                .setConnectionRequestTimeout(timeout)
+                .setSocketTimeout(timeout)
+                .build())
+            .evictIdleConnections(MAX_IDLE.toMillis(), TimeUnit.MILLISECONDS)
+            .build();
+        return new RestTemplate(new HttpComponentsClientHttpRequestFactory(client));
+    }
 }
@@ -0,0 +1,39 @@
+package com.crypto.analysis.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.crypto.analysis.service.BinanceKlineProxy;
+
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Drop-in for {@code https://api.binance.com/api/v3/klines} used by chartkit, so all browsers
+ * share one cache and one rate-limit budget.
+ */
+@RestController
+@RequestMapping("/api/binance")
+@RequiredArgsConstructor
+public class BinanceProxyController {
+
+	private final BinanceKlineProxy proxy;
+
+    @GetMapping("/klines")
+    public Mono<List<List<Object>>> klines(@RequestParam String symbol,
+                                          @RequestParam String interval,
+                                          @RequestParam(defaultValue = "500") int limit,
+                                          @RequestParam(required = false) Long endTime) {
+        return proxy.klines(symbol, interval, limit, endTime);
+    }
+
+    @GetMapping("/klines/stats")
+    public Map<String, Object> stats() {
+        return proxy.stats();
+    }
+}
@@ -0,0 +1,77 @@
+package com.crypto.analysis.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+import org.springframework.web.socket.handler.TextWebSocketHandler;
+
+import com.crypto.analysis.service.CandleTopicHub;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * {@code /ws/candles}: clients send
+ * {@code {"action":"subscribe","symbol":"BTC","interval":"1m"}} (or {@code "unsubscribe"}) and
+ * receive {@code {"type":"candles","symbol":..,"interval":..,"candles":[{x,y}..]}} whenever the
+ * open bar moves or a bar closes.
+ * <p>
+ * Replies written here and bars pushed by the hub's sender threads go to the same session, so
+ * every session is wrapped in a {@link ConcurrentWebSocketSessionDecorator} when it connects.
+ */
+@Component
+@RequiredArgsConstructor
+public class CandleSocketHandler extends TextWebSocketHandler {
+
+	private static final int SEND_TIME_LIMIT_MS = 10_000;
+	private static final int SEND_BUFFER_LIMIT = 512 * 1024;
+
+	private final CandleTopicHub hub;
+	private final ObjectMapper objectMapper;
+	private final Map<String, WebSocketSession> sessions = new ConcurrentHashMap<>();
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) {
+        sessions.put(session.getId(), new ConcurrentWebSocketSessionDecorator(session, SEND_TIME_LIMIT_MS, SEND_BUFFER_LIMIT));
+    }
+
+    @Override
+    protected void handleTextMessage(WebSocketSession raw, TextMessage message) throws Exception {
+        WebSocketSession session = sessions.getOrDefault(raw.getId(), raw);
+        JsonNode cmd = objectMapper.readTree(message.getPayload());
+        String action = cmd.path("action").asText();
+        String symbol = cmd.path("symbol").asText(null);
+        String interval = cmd.path("interval").asText("1h");
+        if (symbol == null || symbol.isEmpty()) {
+            session.sendMessage(new TextMessage("{\"type\":\"error\",\"message\":\"symbol is required\"}"));
+            return;
+        }
+        switch (action) {
+            case "subscribe":
+                hub.subscribe(session, hub.topic(symbol, interval));
+                break;
+            case "unsubscribe":
+                hub.unsubscribe(session, hub.topic(symbol, interval));
+                break;
+            default:
+                session.sendMessage(new TextMessage("{\"type\":\"error\",\"message\":\"unknown action\"}"));
+        }
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+        sessions.remove(session.getId());
+        hub.disconnect(session);
+    }
+
+    @Override
+    public void handleTransportError(WebSocketSession session, Throwable exception) {
+        sessions.remove(session.getId());
+        hub.disconnect(session);
+    }
+}
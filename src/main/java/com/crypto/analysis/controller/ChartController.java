@@ -1,36 +1,309 @@
 package com.crypto.analysis.controller;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 
+import com.crypto.analysis.config.CandleBinaryHttpMessageConverter;
+import com.crypto.analysis.dto.AlignedReqDTO;
+import com.crypto.analysis.dto.AlignedSeries;
+import com.crypto.analysis.dto.CandleBatchResult;
+import com.crypto.analysis.dto.CandleBlock;
+import com.crypto.analysis.dto.CandleCursorPage;
+import com.crypto.analysis.dto.CandlePage;
 import com.crypto.analysis.dto.GraphDataReqDTO;
-import com.crypto.analysis.dto.OhlcPoint;
-import com.crypto.analysis.dto.PagedResponse;
+import com.crypto.analysis.service.CandleCache;
+import com.crypto.analysis.service.CandlePrefetcher;
+import com.crypto.analysis.service.CandleRing;
+import com.crypto.analysis.service.CandleRollup;
+import com.crypto.analysis.service.CandleStaleStore;
+import com.crypto.analysis.service.CandleStore;
+import com.crypto.analysis.service.CandleTopicHub;
+import com.crypto.analysis.service.CandleTransforms;
+import com.crypto.analysis.service.CandleUpstreamGateway;
+import com.crypto.analysis.service.CandleVersionTracker;
 import com.crypto.analysis.service.ChartService;
+import com.crypto.analysis.service.HotCandleRings;
+import com.crypto.analysis.service.IndicatorEngine;
+import com.crypto.analysis.service.LineAlertEngine;
+import com.crypto.analysis.service.RequestCoalescer;
 
-import java.time.Instant;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpSession;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 @RestController
 @RequestMapping("/api/graph")
 @RequiredArgsConstructor
 public class ChartController {
 
+	/** Per-thread response buffer for the packed latest-bars path, grown on demand. */
+	private static final ThreadLocal<ByteBuffer> LATEST_SCRATCH = new ThreadLocal<>();
+
+	/** Set on a delta that starts later than the requested {@code since}; the client has to reload its window. */
+	static final String TRUNCATED_HEADER = "X-Candles-Truncated";
+
 	private final ChartService chartService;
+	private final CandleCache candleCache;
+	private final RequestCoalescer coalescer;
+	private final CandleRollup candleRollup;
+	private final CandleVersionTracker versions;
+	private final CandleTopicHub topicHub;
+	private final CandleUpstreamGateway upstream;
+	private final CandleStaleStore staleStore;
+	private final CandlePrefetcher prefetcher;
+	private final CandleStore candleStore;
+	private final HotCandleRings hotRings;
+	private final CandleTransforms transforms;
+	private final IndicatorEngine indicators;
+	private final LineAlertEngine lineAlerts;
+
+	@Value("${candles.tiles.open-max-age-s:5}")
+	private long openTileMaxAgeSeconds;
 
+    /**
+     * Non-blocking: the servlet thread is released while the upstream call is in flight.
+     * JSON by default, packed columns for {@code Accept: application/x-candles}.
+     * A revalidation of a window that is still fully served by closed cached segments is
+     * answered with 304 before anything is loaded or serialized. While upstream is slow or
+     * failing, a recently served copy may be returned with {@code Age} and a 110 {@code Warning}.
+     */
     @PostMapping("/candles")
-    public ResponseEntity<PagedResponse<OhlcPoint>> candles(@RequestBody GraphDataReqDTO req) {
-        PagedResponse<OhlcPoint> page = chartService.getCandles(req);
+    public Mono<ResponseEntity<CandlePage>> candles(@RequestBody GraphDataReqDTO req,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            HttpServletRequest request) {
+        String variant = variant(accept);
+        String client = client(request);
+        return Mono.defer(() -> {
+            String unchanged = chartService.notModifiedETag(req, variant, ifNoneMatch);
+            if (unchanged != null) {
+                prefetcher.onServed(client, req);
+                return Mono.just(notModified(unchanged));
+            }
+            return chartService.serveCandlesAsync(req)
+                    .map(served -> {
+                        CandlePage page = served.getPage();
+                        String eTag = chartService.eTag(req, variant, served);
+                        if (CandleVersionTracker.matches(ifNoneMatch, eTag)) return notModified(eTag);
+                        ResponseEntity.BodyBuilder ok = ResponseEntity.ok()
+                                .varyBy(HttpHeaders.ACCEPT)
+                                .eTag(eTag);
+                        if (served.isStale()) {
+                            ok.header(HttpHeaders.AGE, Long.toString(served.getAgeMillis() / 1000))
+                              .header(HttpHeaders.WARNING, "110 - \"Response is Stale\"");
+                        }
+                        return ok.body(page);
+                    })
+                    .doOnSuccess(resp -> prefetcher.onServed(client, req));
+        }).onErrorMap(IllegalArgumentException.class, e -> new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage()));
+    }
+
+    /**
+     * Several windows in one round trip (e.g. every chart of a saved dashboard), loaded in
+     * parallel under a bounded fan-out. Results keep the request order; a failed window carries
+     * {@code error} instead of a page.
+     */
+    @PostMapping("/candles/batch")
+    public Mono<List<CandleBatchResult>> batch(@RequestBody List<GraphDataReqDTO> reqs) {
+        if (reqs.size() > ChartService.MAX_BATCH) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "At most " + ChartService.MAX_BATCH + " windows per batch");
+        }
+        return chartService.serveBatchAsync(reqs);
+    }
+
+    /**
+     * Several windows as one time column plus one value column each (e.g. BTC close vs ETH
+     * close), merged on the server; {@code fill} decides what goes into gaps.
+     */
+    @PostMapping("/candles/aligned")
+    public Mono<AlignedSeries> aligned(@RequestBody AlignedReqDTO req) {
+        if (req.getSeries() == null || req.getSeries().isEmpty() || req.getSeries().size() > ChartService.MAX_BATCH) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Between 1 and " + ChartService.MAX_BATCH + " series");
+        }
+        return chartService.alignedAsync(req);
+    }
+
+    /**
+     * The fixed candle grid: tile {@code tile} holds the {@code CandleCache.BARS_PER_SEGMENT}
+     * bars of {@code interval} from {@code tile * span} on. The URL names the content, so a closed
+     * tile is served as immutable for a year and shared by every browser and cache in between;
+     * only the newest tile is short-lived. JSON or packed columns, like {@code /candles}.
+     */
+    @GetMapping("/tiles/{symbol}/{interval}/{tile}")
+    public Mono<ResponseEntity<CandlePage>> tile(@PathVariable String symbol, @PathVariable String interval,
+            @PathVariable long tile,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        String variant = variant(accept);
+        return chartService.tileAsync(symbol, interval, tile)
+                .map(t -> {
+                    String eTag = CandleVersionTracker.eTag(t.getPage(), variant);
+                    // CacheControl has no "immutable" directive in this Spring version
+                    String cache = t.isClosed()
+                            ? CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().getHeaderValue() + ", immutable"
+                            : CacheControl.maxAge(openTileMaxAgeSeconds, TimeUnit.SECONDS).cachePublic().getHeaderValue();
+                    if (CandleVersionTracker.matches(ifNoneMatch, eTag)) {
+                        return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                                .varyBy(HttpHeaders.ACCEPT)
+                                .header(HttpHeaders.CACHE_CONTROL, cache)
+                                .eTag(eTag)
+                                .<CandlePage>build();
+                    }
+                    return ResponseEntity.ok()
+                            .varyBy(HttpHeaders.ACCEPT)
+                            .header(HttpHeaders.CACHE_CONTROL, cache)
+                            .eTag(eTag)
+                            .body(t.getPage());
+                });
+    }
+
+    /**
+     * Keyset paging for scrolling through history: {@code symbol}, {@code interval},
+     * {@code limit} and either {@code cursor} (the {@code nextCursor} of the previous page) or a
+     * starting {@code direction} with {@code to} / {@code from}. No totals are computed.
+     */
+    @PostMapping("/candles/cursor")
+    public Mono<CandleCursorPage> cursor(@RequestBody GraphDataReqDTO req) {
+        return Mono.defer(() -> chartService.cursorAsync(req))
+                .onErrorMap(IllegalArgumentException.class, e -> new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage()));
+    }
+
+    /**
+     * Live refresh: {@code symbol}, {@code interval} and {@code since} (open time of the newest
+     * bar the client holds). Returns that bar as it is now plus any newer bars, one page.
+     * A {@code since} too far back is answered with only the newest bars and {@value #TRUNCATED_HEADER}.
+     */
+    @PostMapping("/candles/delta")
+    public Mono<ResponseEntity<CandlePage>> delta(@RequestBody GraphDataReqDTO req) {
+        return Mono.defer(() -> {
+                    boolean truncated = chartService.isDeltaTruncated(req);
+                    return chartService.getDeltaAsync(req).map(page -> {
+                        ResponseEntity.BodyBuilder ok = ResponseEntity.ok()
+                                .varyBy(HttpHeaders.ACCEPT)
+                                .cacheControl(CacheControl.noStore());
+                        if (truncated) ok.header(TRUNCATED_HEADER, "true");
+                        return ok.body(page);
+                    });
+                })
+                .onErrorMap(IllegalArgumentException.class, e -> new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage()));
+    }
+
+    /**
+     * The newest {@code n} bars of a hot symbol/interval straight from its off-heap ring, without
+     * going upstream. Packed columns are copied from the ring into a reused buffer, so this path
+     * allocates nothing per bar.
+     */
+    @GetMapping(value = "/candles/latest/{symbol}/{interval}", produces = CandleBinaryHttpMessageConverter.MEDIA_TYPE_VALUE)
+    public void latestPacked(@PathVariable String symbol, @PathVariable String interval,
+                             @RequestParam(defaultValue = "500") int n,
+                             HttpServletResponse response) throws IOException {
+        CandleRing ring = hotRing(symbol, interval);
+        int capacity = CandleBinaryHttpMessageConverter.HEADER_BYTES + 48 * Math.min(Math.max(n, 0), ring.capacity());
+        ByteBuffer buf = LATEST_SCRATCH.get();
+        if (buf == null || buf.capacity() < capacity) {
+            buf = ByteBuffer.allocate(capacity).order(ByteOrder.LITTLE_ENDIAN);
+            LATEST_SCRATCH.set(buf);
+        }
+        int count = ring.copyLatestColumns(n, buf, CandleBinaryHttpMessageConverter.HEADER_BYTES);
+        buf.clear();
+        CandleBinaryHttpMessageConverter.putHeader(buf, count, true, 0, count, 1, count);
+
+        int length = CandleBinaryHttpMessageConverter.HEADER_BYTES + 48 * count;
+        response.setContentType(CandleBinaryHttpMessageConverter.MEDIA_TYPE_VALUE);
+        response.setContentLength(length);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "no-store");
+        response.getOutputStream().write(buf.array(), 0, length);
+    }
+
+    @GetMapping("/candles/latest/{symbol}/{interval}")
+    public ResponseEntity<CandleBlock> latest(@PathVariable String symbol, @PathVariable String interval,
+                                              @RequestParam(defaultValue = "500") int n) {
         return ResponseEntity.ok()
-                .eTag(makeETag(page.getContent(), page.getPageNumber(), page.getPageSize()))
-                .body(page);
+                .cacheControl(CacheControl.noStore())
+                .body(hotRing(symbol, interval).latest(n));
+    }
+
+    private CandleRing hotRing(String symbol, String interval) {
+        CandleRing ring = hotRings.ring(symbol, interval);
+        if (ring == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "No hot ring for " + symbol + " " + interval);
+        }
+        return ring;
+    }
+
+    /**
+     * Streaming mode for wide ranges: one JSON array of candles per line, written as each
+     * bucket segment arrives, so the first bars reach the browser before the range is complete.
+     * Paging and the ETag are skipped.
+     */
+    @PostMapping(value = "/candles", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<CandleBlock> streamCandles(@RequestBody GraphDataReqDTO req) {
+        return Flux.defer(() -> chartService.streamCandlesAsync(req))
+                .onErrorMap(IllegalArgumentException.class, e -> new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage()));
+    }
+
+    /**
+     * Counters used to size the candle cache and to watch coalescing, rollups, live push,
+     * the upstream gateway, stale serving, prefetching, the local store, the hot rings,
+     * transforms, indicators and line alerts.
+     */
+    @GetMapping("/candles/stats")
+    public Map<String, Object> stats() {
+        return Map.ofEntries(
+                Map.entry("cache", candleCache.stats()),
+                Map.entry("coalescing", coalescer.stats()),
+                Map.entry("rollup", candleRollup.stats()),
+                Map.entry("versions", versions.stats()),
+                Map.entry("push", topicHub.stats()),
+                Map.entry("upstream", upstream.stats()),
+                Map.entry("stale", staleStore.stats()),
+                Map.entry("prefetch", prefetcher.stats()),
+                Map.entry("store", candleStore.stats()),
+                Map.entry("rings", hotRings.stats()),
+                Map.entry("transforms", transforms.stats()),
+                Map.entry("indicators", indicators.stats()),
+                Map.entry("lineAlerts", lineAlerts.stats()));
+    }
+
+    private static ResponseEntity<CandlePage> notModified(String eTag) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                .varyBy(HttpHeaders.ACCEPT)
+                .eTag(eTag)
+                .build();
+    }
+
+    /** Whose panning the prefetcher follows: the HTTP session if there is one, else the address. */
+    private static String client(HttpServletRequest request) {
+        HttpSession session = request.getSession(false);
+        return session != null ? session.getId() : request.getRemoteAddr();
     }
 
-    private String makeETag(List<OhlcPoint> points, int pageNumber, int pageSize) {
-        if (points == null || points.isEmpty()) return "\"empty\"";
-        Instant last = points.get(points.size() - 1).getX();
-        // include page info to avoid collisions between pages with the same last ts
-        return "\"" + last.toString() + ":" + pageNumber + ":" + pageSize + "\"";
+    /** Each representation gets its own validator: "bin" for packed columns, "json" otherwise. */
+    private static String variant(String accept) {
+        if (accept == null) return "json";
+        List<MediaType> types = MediaType.parseMediaTypes(accept);
+        MediaType.sortBySpecificityAndQuality(types);
+        for (MediaType type : types) {
+            if (type.isWildcardType()) break;
+            if (type.isCompatibleWith(CandleBinaryHttpMessageConverter.MEDIA_TYPE)) return "bin";
+            if (type.isCompatibleWith(MediaType.APPLICATION_JSON)) return "json";
+        }
+        return "json";
     }
 }
\ No newline at end of file
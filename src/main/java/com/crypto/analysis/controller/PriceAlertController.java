@@ -0,0 +1,67 @@
+package com.crypto.analysis.controller;
+
+import lombok.RequiredArgsConstructor;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.crypto.analysis.domain.PriceAlert;
+import com.crypto.analysis.service.PriceAlertService;
+
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/user/price-alerts")
+@RequiredArgsConstructor
+public class PriceAlertController {
+
+    private final PriceAlertService priceAlertService;
+
+    /**
+     * All price alerts of the currently authenticated user, triggered ones included.
+     */
+    @GetMapping
+    public Map<String, Object> getUserPriceAlerts(Authentication authentication) {
+        String userName = authentication.getName();
+        List<PriceAlert> alerts = priceAlertService.getAllForUser(userName);
+
+        return Map.of(
+            "userName", userName,
+            "alerts", alerts
+        );
+    }
+
+    /**
+     * Create an alert: {@code symbol}, {@code direction} ("above" or "below"), {@code price}
+     * and an optional {@code note}.
+     */
+    @PostMapping
+    public PriceAlert createPriceAlert(
+            @RequestBody PriceAlert body,
+            Authentication authentication) {
+        try {
+            return priceAlertService.create(authentication.getName(), body);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Void> deletePriceAlert(
+            @PathVariable Long id,
+            Authentication authentication) {
+
+        return priceAlertService.delete(authentication.getName(), id)
+                ? ResponseEntity.noContent().build()
+                : ResponseEntity.notFound().build();
+    }
+
+    @GetMapping("/stats")
+    public Map<String, Object> stats() {
+        return priceAlertService.stats();
+    }
+}
@@ -0,0 +1,61 @@
+package com.crypto.analysis.domain;
+
+import lombok.*;
+import org.hibernate.annotations.CreationTimestamp;
+import java.time.LocalDateTime;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+
+/**
+ * "Mail me when BTC goes above / below X". One-shot: {@code triggeredAt} is set when the price
+ * crosses the threshold and the alert is no longer watched.
+ */
+@Entity
+@Table(
+    name = "price_alert",
+    indexes = @Index(columnList = "user_name")
+)
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PriceAlert {
+
+    public static final String ABOVE = "above";
+    public static final String BELOW = "below";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_name", nullable = false)
+    private String userName;
+
+    @Column(nullable = false, length = 20)
+    private String symbol; // e.g. BTC
+
+    @Column(nullable = false, length = 5)
+    private String direction; // above | below
+
+    @Column(nullable = false)
+    private double price;
+
+    @Column(length = 200)
+    private String note;
+
+    @Column(name = "triggered_at")
+    private LocalDateTime triggeredAt;
+
+    @Column(name = "triggered_price")
+    private Double triggeredPrice;
+
+    @CreationTimestamp
+    @Column(name = "created_at", updatable = false)
+    private LocalDateTime createdAt;
+}
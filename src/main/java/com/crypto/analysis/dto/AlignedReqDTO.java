@@ -0,0 +1,16 @@
+package com.crypto.analysis.dto;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AlignedReqDTO {
+    private List<GraphDataReqDTO> series;
+    private String fill;    // "previous" | "null" | "interpolate"
+    private String field;   // "open" | "high" | "low" | "close" | "volume", default close
+}
@@ -0,0 +1,24 @@
+package com.crypto.analysis.dto;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Several series on one shared time column: {@code columns[s].values[i]} belongs to
+ * {@code time[i]} (epoch millis); null where the fill policy left a gap.
+ */
+@Data @NoArgsConstructor @AllArgsConstructor
+public class AlignedSeries {
+    private long[] time;
+    private List<Column> columns;
+
+    @Data @NoArgsConstructor @AllArgsConstructor
+    public static class Column {
+        private String name;
+        private String error;     // set when this series could not be loaded
+        private Double[] values;
+    }
+}
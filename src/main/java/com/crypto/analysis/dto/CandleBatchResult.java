@@ -0,0 +1,18 @@
+package com.crypto.analysis.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One entry of a batch candle response, in the order of the requests. Exactly one of
+ * {@code page} and {@code error} is set, so one failing symbol does not fail the batch.
+ */
+@Data @NoArgsConstructor @AllArgsConstructor
+public class CandleBatchResult {
+    private String symbol;
+    private String interval;
+    private CandlePage page;
+    private String error;
+    private boolean stale;    // page came from the serve-stale copy
+}
@@ -0,0 +1,185 @@
+package com.crypto.analysis.dto;
+
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Struct-of-arrays candle series: one primitive column per field instead of one
+ * {@link OhlcPoint} (plus its Instant and double[]) per bar. Rows are ordered by time;
+ * volume is NaN when the source did not provide one.
+ * <p>
+ * Blocks are treated as immutable once built, so segments can be shared between requests.
+ * On the wire it keeps the {@code [{x, y:[o,h,l,c(,v)]}]} shape of {@code List<OhlcPoint>}.
+ */
+@JsonSerialize(using = CandleBlockJson.Serializer.class)
+@JsonDeserialize(using = CandleBlockJson.Deserializer.class)
+public final class CandleBlock {
+
+    public static final CandleBlock EMPTY = new CandleBlock(0, new long[0], new double[0], new double[0],
+            new double[0], new double[0], new double[0]);
+
+    private final int size;
+    private final long[] epochMillis;
+    private final double[] open;
+    private final double[] high;
+    private final double[] low;
+    private final double[] close;
+    private final double[] volume;
+
+    public CandleBlock(int size, long[] epochMillis, double[] open, double[] high, double[] low,
+                       double[] close, double[] volume) {
+        this.size = size;
+        this.epochMillis = epochMillis;
+        this.open = open;
+        this.high = high;
+        this.low = low;
+        this.close = close;
+        this.volume = volume;
+    }
+
+    public int size()                { return size; }
+    public boolean isEmpty()         { return size == 0; }
+    public long time(int i)          { return epochMillis[i]; }
+    public double open(int i)        { return open[i]; }
+    public double high(int i)        { return high[i]; }
+    public double low(int i)         { return low[i]; }
+    public double close(int i)       { return close[i]; }
+    public double volume(int i)      { return volume[i]; }
+    public long firstTime()          { return epochMillis[0]; }
+    public long lastTime()           { return epochMillis[size - 1]; }
+
+    /** First row with {@code time >= epochMs}, or {@code size()} (rows must be ascending). */
+    public int lowerBound(long epochMs) {
+        int lo = 0, hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (epochMillis[mid] < epochMs) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    /** Rows {@code [from, to)} as a new block. */
+    public CandleBlock slice(int from, int to) {
+        if (from == 0 && to == size) return this;
+        return new CandleBlock(to - from,
+                Arrays.copyOfRange(epochMillis, from, to),
+                Arrays.copyOfRange(open, from, to),
+                Arrays.copyOfRange(high, from, to),
+                Arrays.copyOfRange(low, from, to),
+                Arrays.copyOfRange(close, from, to),
+                Arrays.copyOfRange(volume, from, to));
+    }
+
+    public CandleBlock reversed() {
+        Builder b = new Builder(size);
+        for (int i = size - 1; i >= 0; i--) b.add(this, i);
+        return b.build();
+    }
+
+    /** Compatibility view for callers that still expect {@code List<OhlcPoint>}. */
+    public List<OhlcPoint> toPoints() {
+        List<OhlcPoint> points = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            double[] y = Double.isNaN(volume[i])
+                    ? new double[] { open[i], high[i], low[i], close[i] }
+                    : new double[] { open[i], high[i], low[i], close[i], volume[i] };
+            points.add(new OhlcPoint(Instant.ofEpochMilli(epochMillis[i]), y));
+        }
+        return points;
+    }
+
+    public static CandleBlock fromPoints(List<OhlcPoint> points) {
+        Builder b = new Builder(points.size());
+        for (OhlcPoint p : points) {
+            double[] y = p.getY();
+            b.add(p.getX().toEpochMilli(), y[0], y[1], y[2], y[3], y.length > 4 ? y[4] : Double.NaN);
+        }
+        return b.build();
+    }
+
+    /** Growable column buffers; {@link #build()} hands them over, so a builder is single use. */
+    public static final class Builder {
+        private int size;
+        private long[] epochMillis;
+        private double[] open, high, low, close, volume;
+
+        public Builder() {
+            this(64);
+        }
+
+        public Builder(int capacity) {
+            int c = Math.max(1, capacity);
+            epochMillis = new long[c];
+            open = new double[c];
+            high = new double[c];
+            low = new double[c];
+            close = new double[c];
+            volume = new double[c];
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public Builder add(long t, double o, double h, double l, double c, double v) {
+            if (size == epochMillis.length) grow();
+            epochMillis[size] = t;
+            open[size] = o;
+            high[size] = h;
+            low[size] = l;
+            close[size] = c;
+            volume[size] = v;
+            size++;
+            return this;
+        }
+
+        public Builder add(CandleBlock src, int i) {
+            return add(src.epochMillis[i], src.open[i], src.high[i], src.low[i], src.close[i], src.volume[i]);
+        }
+
+        /** Appends rows {@code [from, to)} of {@code src}. */
+        public Builder addAll(CandleBlock src, int from, int to) {
+            int n = to - from;
+            if (n <= 0) return this;
+            while (size + n > epochMillis.length) grow();
+            System.arraycopy(src.epochMillis, from, epochMillis, size, n);
+            System.arraycopy(src.open, from, open, size, n);
+            System.arraycopy(src.high, from, high, size, n);
+            System.arraycopy(src.low, from, low, size, n);
+            System.arraycopy(src.close, from, close, size, n);
+            System.arraycopy(src.volume, from, volume, size, n);
+            size += n;
+            return this;
+        }
+
+        public CandleBlock build() {
+            if (size == 0) return EMPTY;
+            if (size == epochMillis.length) {
+                return new CandleBlock(size, epochMillis, open, high, low, close, volume);
+            }
+            return new CandleBlock(size,
+                    Arrays.copyOf(epochMillis, size),
+                    Arrays.copyOf(open, size),
+                    Arrays.copyOf(high, size),
+                    Arrays.copyOf(low, size),
+                    Arrays.copyOf(close, size),
+                    Arrays.copyOf(volume, size));
+        }
+
+        private void grow() {
+            int c = epochMillis.length * 2;
+            epochMillis = Arrays.copyOf(epochMillis, c);
+            open = Arrays.copyOf(open, c);
+            high = Arrays.copyOf(high, c);
+            low = Arrays.copyOf(low, c);
+            close = Arrays.copyOf(close, c);
+            volume = Arrays.copyOf(volume, c);
+        }
+    }
+}
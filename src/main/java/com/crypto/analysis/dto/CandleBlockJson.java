@@ -0,0 +1,141 @@
+package com.crypto.analysis.dto;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+
+import java.io.IOException;
+import java.math.RoundingMode;
+import java.time.Instant;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Streams a {@link CandleBlock} to and from the {@code [{"x": ISO-8601, "y": [o,h,l,c(,v)]}]}
+ * JSON shape of {@code List<OhlcPoint>}, without materialising the points. A numeric {@code x}
+ * is read the way Jackson reads it into {@code OhlcPoint.x}: epoch seconds (a fraction for
+ * sub-second parts), or epoch millis for integers when
+ * {@link DeserializationFeature#READ_DATE_TIMESTAMPS_AS_NANOSECONDS} is off.
+ */
+final class CandleBlockJson {
+
+    private CandleBlockJson() {
+    }
+
+    static final class Serializer extends JsonSerializer<CandleBlock> {
+        @Override
+        public void serialize(CandleBlock block, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeStartArray();
+            for (int i = 0; i < block.size(); i++) {
+                gen.writeStartObject();
+                gen.writeStringField("x", DateTimeFormatter.ISO_INSTANT.format(Instant.ofEpochMilli(block.time(i))));
+                gen.writeArrayFieldStart("y");
+                gen.writeNumber(block.open(i));
+                gen.writeNumber(block.high(i));
+                gen.writeNumber(block.low(i));
+                gen.writeNumber(block.close(i));
+                if (!Double.isNaN(block.volume(i))) gen.writeNumber(block.volume(i));
+                gen.writeEndArray();
+                gen.writeEndObject();
+            }
+            gen.writeEndArray();
+        }
+    }
+
+    static final class Deserializer extends JsonDeserializer<CandleBlock> {
+        @Override
+        public CandleBlock deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            if (p.currentToken() != JsonToken.START_ARRAY) {
+                return (CandleBlock) ctxt.handleUnexpectedToken(CandleBlock.class, p);
+            }
+            CandleBlock.Builder b = new CandleBlock.Builder();
+            double[] y = new double[5];
+            while (p.nextToken() == JsonToken.START_OBJECT) {
+                long x = Long.MIN_VALUE;
+                int n = 0;
+                while (p.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = p.getCurrentName();
+                    JsonToken value = p.nextToken();
+                    if ("x".equals(field)) {
+                        x = value == JsonToken.VALUE_STRING
+                                ? parseInstant(p.getTextCharacters(), p.getTextOffset(), p.getTextLength())
+                                : epochMillis(p, value, ctxt);
+                    } else if ("y".equals(field) && value == JsonToken.START_ARRAY) {
+                        n = 0;
+                        while (p.nextToken() != JsonToken.END_ARRAY) {
+                            double v = p.currentToken() == JsonToken.VALUE_NULL ? Double.NaN : p.getDoubleValue();
+                            if (n < y.length) y[n] = v;
+                            n++;
+                        }
+                    } else {
+                        p.skipChildren();
+                    }
+                }
+                if (x == Long.MIN_VALUE || n < 4) continue;
+                b.add(x, y[0], y[1], y[2], y[3], n > 4 ? y[4] : Double.NaN);
+            }
+            return b.build();
+        }
+
+        private static long epochMillis(JsonParser p, JsonToken value, DeserializationContext ctxt) throws IOException {
+            if (value == JsonToken.VALUE_NUMBER_FLOAT) {
+                return p.getDecimalValue().movePointRight(3).setScale(0, RoundingMode.FLOOR).longValueExact();
+            }
+            long n = p.getLongValue();
+            return ctxt.isEnabled(DeserializationFeature.READ_DATE_TIMESTAMPS_AS_NANOSECONDS) ? n * 1000L : n;
+        }
+    }
+
+    /**
+     * Epoch millis of an ISO-8601 UTC instant ({@code yyyy-MM-ddTHH:mm:ss[.SSS...]Z}) read straight
+     * from the parser buffer; anything else goes through {@link Instant#parse}.
+     */
+    static long parseInstant(char[] c, int off, int len) {
+        if (len < 20 || c[off + 4] != '-' || c[off + 7] != '-' || c[off + 10] != 'T'
+                || c[off + 13] != ':' || c[off + 16] != ':' || c[off + len - 1] != 'Z') {
+            return Instant.parse(new String(c, off, len)).toEpochMilli();
+        }
+        int year = digits(c, off, 4);
+        int month = digits(c, off + 5, 2);
+        int day = digits(c, off + 8, 2);
+        int hour = digits(c, off + 11, 2);
+        int minute = digits(c, off + 14, 2);
+        int second = digits(c, off + 17, 2);
+        int millis = 0;
+        int end = off + len - 1;
+        if (off + 19 < end) {
+            if (c[off + 19] != '.') return Instant.parse(new String(c, off, len)).toEpochMilli();
+            for (int i = 0, pos = off + 20; i < 3; i++, pos++) {
+                millis = millis * 10 + (pos < end ? c[pos] - '0' : 0);
+            }
+        }
+        if ((year | month | day | hour | minute | second) < 0) {
+            return Instant.parse(new String(c, off, len)).toEpochMilli();
+        }
+        return ((epochDay(year, month, day) * 24 + hour) * 60 + minute) * 60_000L + second * 1000L + millis;
+    }
+
+    private static int digits(char[] c, int off, int n) {
+        int v = 0;
+        for (int i = off; i < off + n; i++) {
+            int d = c[i] - '0';
+            if (d < 0 || d > 9) return -1;
+            v = v * 10 + d;
+        }
+        return v;
+    }
+
+    /** Days since 1970-01-01 of a proleptic Gregorian date (same arithmetic as LocalDate.toEpochDay). */
+    private static long epochDay(long y, int m, int d) {
+        y -= m <= 2 ? 1 : 0;
+        long era = Math.floorDiv(y, 400);
+        long yoe = y - era * 400;
+        long doy = (153 * (m + (m > 2 ? -3 : 9)) + 2) / 5 + d - 1;
+        long doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+        return era * 146097 + doe - 719468;
+    }
+}
@@ -0,0 +1,15 @@
+package com.crypto.analysis.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One keyset page of candles, oldest bar first. {@code nextCursor} continues in the requested
+ * direction and is null once there is nothing further; there are deliberately no totals.
+ */
+@Data @NoArgsConstructor @AllArgsConstructor
+public class CandleCursorPage {
+    private CandleBlock content;
+    private String nextCursor;
+}
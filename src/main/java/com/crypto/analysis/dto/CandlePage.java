@@ -0,0 +1,39 @@
+package com.crypto.analysis.dto;
+
+import java.util.Map;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * {@link PagedResponse} counterpart whose content is a columnar {@link CandleBlock}.
+ * Serializes to the same JSON as {@code PagedResponse<OhlcPoint>}, plus {@code indicators}
+ * when they were requested: one array per output, row for row with {@code content}, null where
+ * an indicator has no value yet. The packed columns carry the bars only.
+ */
+@Data @NoArgsConstructor @AllArgsConstructor
+public class CandlePage {
+    private CandleBlock content;
+    private int pageNumber;   // current page (zero-based)
+    private int pageSize;
+    private long totalElements;
+    private int totalPages;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Map<String, Double[]> indicators;
+
+    public CandlePage(CandleBlock content, int pageNumber, int pageSize, long totalElements, int totalPages) {
+        this(content, pageNumber, pageSize, totalElements, totalPages, null);
+    }
+
+    public CandleBlock getContent() {
+        return content != null ? content : CandleBlock.EMPTY;
+    }
+
+    /** Compatibility view with one {@link OhlcPoint} per bar. */
+    public PagedResponse<OhlcPoint> toPagedResponse() {
+        return new PagedResponse<>(getContent().toPoints(), pageNumber, pageSize, totalElements, totalPages);
+    }
+}
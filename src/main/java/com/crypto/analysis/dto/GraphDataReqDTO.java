@@ -1,6 +1,7 @@
 package com.crypto.analysis.dto;
 
 import java.time.Instant;
+import java.util.List;
 
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -8,7 +9,7 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 @Data
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor 
 @AllArgsConstructor
 public class GraphDataReqDTO {
@@ -16,7 +17,13 @@ public class GraphDataReqDTO {
     private String interval;   // e.g., "1m", "5m", "1h"
     private Instant from;      // ISO-8601 UTC
     private Instant to;        // ISO-8601 UTC
-    private String downsample; // "auto" | "1m" | "5m" | "1h" | "1d"
+    private String downsample; // "auto" | "1m" | "5m" | "1h" | "1d" | "minmax" | "lttb"
+    private Integer targetPoints; // point budget for "auto", "minmax" and "lttb"
+    private Instant since;     // delta: open time of the newest bar the client holds
+    private String transform;  // e.g. "scale:109500", "pct|cumsum", "ratio:ETH", see CandleTransforms
+    private String cursor;     // keyset paging: opaque, the nextCursor of the previous page
+    private String direction;  // keyset paging: "older" (default) or "newer"
+    private List<String> indicators; // e.g. ["sma:20", "ema:50", "rsi:14", "bb:20:2", "vwap"]
     private String fromDate;
     private String toDate;
     private String dataType;  // normal max min 
@@ -10,6 +10,7 @@ import org.springframework.mail.MailException;
 import org.springframework.mail.SimpleMailMessage;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 import org.thymeleaf.context.Context;
 import org.thymeleaf.spring5.SpringTemplateEngine;
@@ -44,6 +45,17 @@ public class EmailService {
 	        }
 	    }
 	 
+	 /**
+	  * Alert mail to a user's registered address, sent off the caller's thread so that
+	  * alert evaluation never waits on the mail server.
+	  */
+	 @Async
+	 public void sendAlert(String userName, String subject, String text) {
+		    User user = userService.getUserInfoByUsername(userName);
+		    if (user == null || user.getEmail() == null) return;
+		    sendSimpleMessage(user.getEmail(), subject, text);
+	 }
+	 
 	   public void sendMessageUsingThymeleafTemplate(
 	        String to, String subject, String userName, String templateName)
 	            throws MessagingException {
@@ -0,0 +1,25 @@
+package com.crypto.analysis.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.crypto.analysis.domain.PriceAlert;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface PriceAlertRepository extends JpaRepository<PriceAlert, Long> {
+    List<PriceAlert> findByUserName(String userName);
+    List<PriceAlert> findByTriggeredAtIsNull();
+    Optional<PriceAlert> findByIdAndUserName(Long id, String userName);
+
+    @Modifying
+    @Transactional
+    @Query("update PriceAlert a set a.triggeredAt = :at, a.triggeredPrice = :price where a.id in :ids and a.triggeredAt is null")
+    int markTriggered(@Param("ids") Collection<Long> ids, @Param("at") LocalDateTime at, @Param("price") double price);
+}
@@ -0,0 +1,375 @@
+package com.crypto.analysis.service;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.server.ResponseStatusException;
+
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+/**
+ * Serves Binance {@code /api/v3/klines} to every browser from one shared cache. Requests are
+ * mapped onto fixed windows of 1000 bars aligned to the epoch, so overlapping ranges from
+ * different users resolve to the same upstream call; concurrent misses of a window share one
+ * call through the {@link RequestCoalescer}. Windows that are fully in the past never expire,
+ * the window containing "now" is refetched after {@code binance.proxy.open-ttl-ms}.
+ * <p>
+ * Upstream calls spend from a token bucket of {@code binance.proxy.weight-per-minute}, kept in
+ * line with the exchange's {@code X-MBX-USED-WEIGHT-1M} header. A 429/418 stops all calls for
+ * the Retry-After period, during which cached windows (even expired ones) are still served.
+ */
+@Component
+public class BinanceKlineProxy {
+
+    private static final String KLINES_PATH = "/api/v3/klines";
+    private static final int WINDOW_BARS = 1000;
+    private static final int KLINES_WEIGHT = 2;
+    private static final Pattern SYMBOL = Pattern.compile("[A-Z0-9]{2,20}");
+    private static final Map<String, Long> INTERVAL_MS = new LinkedHashMap<>();
+
+    static {
+        INTERVAL_MS.put("1m", 60_000L);
+        INTERVAL_MS.put("3m", 180_000L);
+        INTERVAL_MS.put("5m", 300_000L);
+        INTERVAL_MS.put("15m", 900_000L);
+        INTERVAL_MS.put("30m", 1_800_000L);
+        INTERVAL_MS.put("1h", 3_600_000L);
+        INTERVAL_MS.put("2h", 7_200_000L);
+        INTERVAL_MS.put("4h", 14_400_000L);
+        INTERVAL_MS.put("6h", 21_600_000L);
+        INTERVAL_MS.put("8h", 28_800_000L);
+        INTERVAL_MS.put("12h", 43_200_000L);
+        INTERVAL_MS.put("1d", 86_400_000L);
+        INTERVAL_MS.put("3d", 259_200_000L);
+        INTERVAL_MS.put("1w", 604_800_000L);
+        INTERVAL_MS.put("1M", 2_678_400_000L);   // only used to partition windows
+    }
+
+    private final WebClient binanceWebClient;
+    private final RequestCoalescer coalescer;
+    private final int maxWindows;
+    private final long openTtlMs;
+    private final long maxBudgetWaitMs;
+    private final long defaultBackoffMs;
+    private final WeightBudget budget;
+    private final Map<WindowKey, Window> windows;
+    private volatile long blockedUntil;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder upstreamCalls = new LongAdder();
+    private final LongAdder rateLimited = new LongAdder();
+    private final LongAdder budgetWaits = new LongAdder();
+    private final LongAdder budgetRejected = new LongAdder();
+    private final LongAdder servedStale = new LongAdder();
+
+    public BinanceKlineProxy(@Qualifier("binanceWebClient") WebClient binanceWebClient,
+                             RequestCoalescer coalescer,
+                             @Value("${binance.proxy.max-windows:256}") int maxWindows,
+                             @Value("${binance.proxy.open-ttl-ms:2000}") long openTtlMs,
+                             @Value("${binance.proxy.weight-per-minute:1200}") int weightPerMinute,
+                             @Value("${binance.proxy.max-budget-wait-ms:2000}") long maxBudgetWaitMs,
+                             @Value("${binance.proxy.backoff-ms:30000}") long defaultBackoffMs) {
+        this.binanceWebClient = binanceWebClient;
+        this.coalescer = coalescer;
+        this.maxWindows = maxWindows;
+        this.openTtlMs = openTtlMs;
+        this.maxBudgetWaitMs = maxBudgetWaitMs;
+        this.defaultBackoffMs = defaultBackoffMs;
+        this.budget = new WeightBudget(weightPerMinute);
+        this.windows = new LinkedHashMap<WindowKey, Window>(256, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<WindowKey, Window> eldest) {
+                return size() > BinanceKlineProxy.this.maxWindows;
+            }
+        };
+    }
+
+    /**
+     * Same contract as Binance: the last {@code limit} (1..1000) klines opened at or before
+     * {@code endTime} (default now), oldest first, in Binance's row format.
+     */
+    public Mono<List<List<Object>>> klines(String symbol, String interval, int limit, Long endTime) {
+        String sym = symbol == null ? "" : symbol.toUpperCase();
+        Long gapMs = INTERVAL_MS.get(interval);
+        if (!SYMBOL.matcher(sym).matches() || gapMs == null) {
+            return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unsupported symbol or interval"));
+        }
+        int lim = Math.max(1, Math.min(WINDOW_BARS, limit));
+        long end = endTime != null ? endTime : System.currentTimeMillis();
+        long bucket = Math.floorDiv(end, gapMs * WINDOW_BARS);
+
+        return window(new WindowKey(sym, interval, bucket)).flatMap(rows -> {
+            int n = rows.countUpTo(end);
+            if (n >= lim || bucket <= 0) return Mono.just(rows.list(n - lim, n));
+            // the range starts in the previous window
+            return window(new WindowKey(sym, interval, bucket - 1)).map(prev -> {
+                List<List<Object>> both = new ArrayList<>(lim);
+                both.addAll(prev.list(prev.size - (lim - n), prev.size));
+                both.addAll(rows.list(0, n));
+                return both;
+            });
+        });
+    }
+
+    private Mono<Rows> window(WindowKey key) {
+        return Mono.defer(() -> {
+            long now = System.currentTimeMillis();
+            Window cached;
+            synchronized (windows) {
+                cached = windows.get(key);
+            }
+            if (cached != null && (cached.closed || now - cached.fetchedAt < openTtlMs)) {
+                hits.increment();
+                return Mono.just(cached.rows);
+            }
+            if (now < blockedUntil) {
+                if (cached != null) {
+                    servedStale.increment();
+                    return Mono.just(cached.rows);
+                }
+                return Mono.error(rateLimitedError(now));
+            }
+            misses.increment();
+            return Mono.fromFuture(coalescer.execute(key, () -> fetch(key).toFuture()).thenApply(Function.identity()));
+        });
+    }
+
+    private Mono<Rows> fetch(WindowKey key) {
+        long waitMs = budget.reserve(KLINES_WEIGHT);
+        if (waitMs > maxBudgetWaitMs) {
+            budget.refund(KLINES_WEIGHT);
+            budgetRejected.increment();
+            return Mono.error(new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Binance weight budget exhausted"));
+        }
+        if (waitMs > 0) budgetWaits.increment();
+
+        long spanMs = INTERVAL_MS.get(key.getInterval()) * WINDOW_BARS;
+        long start = key.getBucket() * spanMs;
+        Mono<Rows> call = binanceWebClient.get()
+                .uri(b -> b.path(KLINES_PATH)
+                        .queryParam("symbol", key.getSymbol())
+                        .queryParam("interval", key.getInterval())
+                        .queryParam("startTime", start)
+                        .queryParam("endTime", start + spanMs - 1)
+                        .queryParam("limit", WINDOW_BARS)
+                        .build())
+                .exchangeToMono(resp -> {
+                    upstreamCalls.increment();
+                    resp.headers().header("X-MBX-USED-WEIGHT-1M").stream().findFirst()
+                            .ifPresent(used -> budget.observeUsed(Integer.parseInt(used.trim())));
+                    int status = resp.rawStatusCode();
+                    if (status == 429 || status == 418) {
+                        rateLimited.increment();
+                        long retryMs = resp.headers().header("Retry-After").stream().findFirst()
+                                .map(this::retryAfterMillis)
+                                .orElse(defaultBackoffMs);
+                        blockedUntil = Math.max(blockedUntil, System.currentTimeMillis() + retryMs);
+                        return resp.releaseBody().then(Mono.error(rateLimitedError(System.currentTimeMillis())));
+                    }
+                    if (status < 200 || status >= 300) {
+                        return resp.releaseBody().then(Mono.error(
+                                new ResponseStatusException(HttpStatus.BAD_GATEWAY, "Binance error: " + status)));
+                    }
+                    return resp.bodyToMono(new ParameterizedTypeReference<List<List<Object>>>() { });
+                })
+                .onErrorMap(e -> !(e instanceof ResponseStatusException),
+                        e -> new ResponseStatusException(HttpStatus.BAD_GATEWAY, "Binance unreachable: " + e.getMessage()))
+                .defaultIfEmpty(List.of())
+                .map(Rows::new)
+                .doOnNext(rows -> {
+                    Window w = new Window(rows, System.currentTimeMillis(), start + spanMs <= System.currentTimeMillis());
+                    synchronized (windows) {
+                        windows.put(key, w);
+                    }
+                });
+        return waitMs > 0 ? Mono.delay(Duration.ofMillis(waitMs)).then(call) : call;
+    }
+
+    private long retryAfterMillis(String value) {
+        try {
+            return Long.parseLong(value.trim()) * 1000L;
+        } catch (NumberFormatException e) {
+            return defaultBackoffMs;
+        }
+    }
+
+    private ResponseStatusException rateLimitedError(long now) {
+        long seconds = Math.max(1, (blockedUntil - now + 999) / 1000);
+        return new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS, "Binance rate limited, retry in " + seconds + "s");
+    }
+
+    public Map<String, Object> stats() {
+        int size;
+        synchronized (windows) {
+            size = windows.size();
+        }
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("windows", size);
+        stats.put("hits", hits.sum());
+        stats.put("misses", misses.sum());
+        stats.put("upstreamCalls", upstreamCalls.sum());
+        stats.put("rateLimited", rateLimited.sum());
+        stats.put("blockedForMs", Math.max(0, blockedUntil - System.currentTimeMillis()));
+        stats.put("budgetWaits", budgetWaits.sum());
+        stats.put("budgetRejected", budgetRejected.sum());
+        stats.put("servedStale", servedStale.sum());
+        return stats;
+    }
+
+    @lombok.Value
+    static class WindowKey {
+        String symbol;
+        String interval;
+        long bucket;
+    }
+
+    private static final class Window {
+        final Rows rows;
+        final long fetchedAt;
+        final boolean closed;
+
+        Window(Rows rows, long fetchedAt, boolean closed) {
+            this.rows = rows;
+            this.fetchedAt = fetchedAt;
+            this.closed = closed;
+        }
+    }
+
+    /**
+     * The kline rows of one window stored by column: whole-number fields (open and close time,
+     * trade count) as {@code long[]}, each decimal-string field as one string of its cells back to
+     * back with their end offsets. A window of 1000 rows is a few dozen arrays instead of some
+     * 12000 boxed cells. Rows are rebuilt only for the part that is served, and serialize exactly
+     * like the exchange's.
+     */
+    private static final class Rows {
+        final int size;
+        private final long[][] numbers;   // [field][row], null unless every cell is a whole number
+        private final String[] text;      // [field], null unless every cell is a string
+        private final int[][] ends;       // [field][row], end of each cell in text[field]
+        private final List<List<Object>> boxed;   // rows of any other shape, kept as parsed
+
+        Rows(List<List<Object>> rows) {
+            size = rows.size();
+            int width = size == 0 ? 0 : rows.get(0).size();
+            boolean uniform = true;
+            for (List<Object> row : rows) uniform &= row.size() == width;
+            if (!uniform) {
+                numbers = null;
+                text = null;
+                ends = null;
+                boxed = rows;
+                return;
+            }
+            numbers = new long[width][];
+            text = new String[width];
+            ends = new int[width][];
+            List<List<Object>> other = null;
+            for (int f = 0; f < width; f++) {
+                boolean whole = true, strings = true;
+                for (List<Object> row : rows) {
+                    Object v = row.get(f);
+                    whole &= v instanceof Integer || v instanceof Long;
+                    strings &= v instanceof String;
+                }
+                if (whole) {
+                    numbers[f] = new long[size];
+                    for (int i = 0; i < size; i++) numbers[f][i] = ((Number) rows.get(i).get(f)).longValue();
+                } else if (strings) {
+                    StringBuilder sb = new StringBuilder();
+                    ends[f] = new int[size];
+                    for (int i = 0; i < size; i++) ends[f][i] = sb.append((String) rows.get(i).get(f)).length();
+                    text[f] = sb.toString();
+                } else {
+                    other = rows;
+                }
+            }
+            boxed = other;
+        }
+
+        /** Number of rows opened at or before {@code endTime}; rows are ascending by open time. */
+        int countUpTo(long endTime) {
+            int n = size;
+            while (n > 0 && openTime(n - 1) > endTime) n--;
+            return n;
+        }
+
+        /** Rows {@code [from, to)}, with {@code from} clamped to 0. */
+        List<List<Object>> list(int from, int to) {
+            from = Math.max(0, from);
+            if (boxed != null) return new ArrayList<>(boxed.subList(from, to));
+            List<List<Object>> out = new ArrayList<>(to - from);
+            for (int i = from; i < to; i++) out.add(row(i));
+            return out;
+        }
+
+        private long openTime(int i) {
+            return boxed != null ? ((Number) boxed.get(i).get(0)).longValue() : numbers[0][i];
+        }
+
+        private List<Object> row(int i) {
+            Object[] cells = new Object[numbers.length];
+            for (int f = 0; f < cells.length; f++) {
+                if (numbers[f] != null) {
+                    cells[f] = numbers[f][i];
+                } else {
+                    cells[f] = text[f].substring(i == 0 ? 0 : ends[f][i - 1], ends[f][i]);
+                }
+            }
+            return Arrays.asList(cells);
+        }
+    }
+
+    /** Token bucket refilled continuously at weightPerMinute per minute. */
+    private static final class WeightBudget {
+        private final double capacity;
+        private final double perMs;
+        private double tokens;
+        private long last = System.currentTimeMillis();
+
+        WeightBudget(int weightPerMinute) {
+            this.capacity = weightPerMinute;
+            this.perMs = weightPerMinute / 60_000.0;
+            this.tokens = weightPerMinute;
+        }
+
+        /** Takes {@code weight} and returns how long to wait before the call may go out. */
+        synchronized long reserve(int weight) {
+            refill();
+            tokens -= weight;
+            return tokens >= 0 ? 0 : (long) Math.ceil(-tokens / perMs);
+        }
+
+        synchronized void refund(int weight) {
+            tokens = Math.min(capacity, tokens + weight);
+        }
+
+        /** The exchange counts weight per IP across everything we send; never be more optimistic. */
+        synchronized void observeUsed(int used) {
+            refill();
+            tokens = Math.min(tokens, capacity - used);
+        }
+
+        private void refill() {
+            long now = System.currentTimeMillis();
+            tokens = Math.min(capacity, tokens + (now - last) * perMs);
+            last = now;
+        }
+    }
+}
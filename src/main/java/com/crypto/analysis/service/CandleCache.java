@@ -0,0 +1,107 @@
+package com.crypto.analysis.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.crypto.analysis.dto.CandleBlock;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-process cache of closed OHLC bars, split into fixed-size time buckets per (symbol, gap).
+ * A segment may be partially filled: bars before {@code coveredUntil} are final, anything after
+ * (the still-open bar) has to be re-read from upstream.
+ */
+@Component
+public class CandleCache {
+
+    /** Number of bars held by one bucket segment. */
+    public static final int BARS_PER_SEGMENT = 500;
+
+    private final int maxSegments;
+    private final Map<Key, Segment> segments;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder partialHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public CandleCache(@Value("${candles.cache.max-segments:4096}") int maxSegments) {
+        this.maxSegments = maxSegments;
+        this.segments = new LinkedHashMap<Key, Segment>(256, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Segment> eldest) {
+                if (size() > CandleCache.this.maxSegments) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Returns the cached segment, or {@code null}. A segment that does not reach {@code needUntil}
+     * is still returned so the caller only has to fetch the missing tail.
+     */
+    public Segment get(Key key, long needUntil) {
+        Segment seg;
+        synchronized (segments) {
+            seg = segments.get(key);
+        }
+        if (seg == null) misses.increment();
+        else if (seg.getCoveredUntil() >= needUntil) hits.increment();
+        else partialHits.increment();
+        return seg;
+    }
+
+    /** Lookup for internal readers (e.g. rollups); does not count towards the hit ratio. */
+    public Segment peek(Key key) {
+        synchronized (segments) {
+            return segments.get(key);
+        }
+    }
+
+    public void put(Key key, Segment segment) {
+        synchronized (segments) {
+            segments.put(key, segment);
+        }
+    }
+
+    public Map<String, Object> stats() {
+        int size;
+        synchronized (segments) {
+            size = segments.size();
+        }
+        return Map.of(
+            "segments", size,
+            "maxSegments", maxSegments,
+            "hits", hits.sum(),
+            "partialHits", partialHits.sum(),
+            "misses", misses.sum(),
+            "evictions", evictions.sum()
+        );
+    }
+
+    @lombok.Value
+    public static class Key {
+        String symbol;
+        String gap;
+        long bucket;
+    }
+
+    private static final AtomicLong SEGMENT_IDS = new AtomicLong();
+
+    /** Bars of one bucket; {@code id} is unique per instance, so derived data can refer to it without holding it. */
+    @lombok.Value
+    public static class Segment {
+        CandleBlock candles;      // ascending by time
+        long coveredUntil;        // epoch millis, exclusive
+        long id = SEGMENT_IDS.incrementAndGet();
+    }
+}
@@ -0,0 +1,90 @@
+package com.crypto.analysis.service;
+
+import org.springframework.stereotype.Component;
+
+import com.crypto.analysis.dto.CandleBlock;
+
+/**
+ * Reduces a candle series to a point budget while keeping its extremes.
+ * <ul>
+ *   <li>{@code minmax}: merges runs of consecutive bars into one OHLC bar (first open, max high,
+ *       min low, last close, summed volume), so no high or low is lost.</li>
+ *   <li>{@code lttb}: Largest-Triangle-Three-Buckets on the close, for line series; keeps the
+ *       original bars that shape the curve the most.</li>
+ * </ul>
+ */
+@Component
+public class CandleDownsampler {
+
+    public static final String MINMAX = "minmax";
+    public static final String LTTB = "lttb";
+
+    public static boolean isReduction(String downsample) {
+        return MINMAX.equalsIgnoreCase(downsample) || LTTB.equalsIgnoreCase(downsample);
+    }
+
+    public CandleBlock reduce(CandleBlock in, String mode, int targetPoints) {
+        if (in.size() <= targetPoints || targetPoints <= 0) return in;
+        return LTTB.equalsIgnoreCase(mode) ? lttb(in, targetPoints) : minMax(in, targetPoints);
+    }
+
+    CandleBlock minMax(CandleBlock in, int targetPoints) {
+        int n = in.size();
+        int per = (n + targetPoints - 1) / targetPoints;
+        CandleBlock.Builder out = new CandleBlock.Builder((n + per - 1) / per);
+        for (int start = 0; start < n; start += per) {
+            int end = Math.min(n, start + per);
+            double high = in.high(start), low = in.low(start), volume = in.volume(start);
+            for (int i = start + 1; i < end; i++) {
+                high = Math.max(high, in.high(i));
+                low = Math.min(low, in.low(i));
+                double v = in.volume(i);
+                if (!Double.isNaN(v)) volume = Double.isNaN(volume) ? v : volume + v;
+            }
+            out.add(in.time(start), in.open(start), high, low, in.close(end - 1), volume);
+        }
+        return out.build();
+    }
+
+    CandleBlock lttb(CandleBlock in, int targetPoints) {
+        int n = in.size();
+        if (targetPoints < 3) return minMax(in, targetPoints);
+
+        CandleBlock.Builder out = new CandleBlock.Builder(targetPoints);
+        double every = (double) (n - 2) / (targetPoints - 2);
+        int a = 0;
+        out.add(in, a);
+
+        for (int i = 0; i < targetPoints - 2; i++) {
+            // average of the next bucket is the third triangle vertex
+            int nextStart = (int) Math.floor((i + 1) * every) + 1;
+            int nextEnd = Math.min(n, (int) Math.floor((i + 2) * every) + 1);
+            double avgX = 0, avgY = 0;
+            for (int j = nextStart; j < nextEnd; j++) {
+                avgX += in.time(j);
+                avgY += in.close(j);
+            }
+            int len = Math.max(1, nextEnd - nextStart);
+            avgX /= len;
+            avgY /= len;
+
+            int start = (int) Math.floor(i * every) + 1;
+            int end = (int) Math.floor((i + 1) * every) + 1;
+            double ax = in.time(a), ay = in.close(a);
+            double maxArea = -1;
+            int chosen = start;
+            for (int j = start; j < end; j++) {
+                double area = Math.abs((ax - avgX) * (in.close(j) - ay) - (ax - in.time(j)) * (avgY - ay));
+                if (area > maxArea) {
+                    maxArea = area;
+                    chosen = j;
+                }
+            }
+            out.add(in, chosen);
+            a = chosen;
+        }
+
+        out.add(in, n - 1);
+        return out.build();
+    }
+}
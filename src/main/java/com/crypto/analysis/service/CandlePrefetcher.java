@@ -0,0 +1,143 @@
+package com.crypto.analysis.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.crypto.analysis.dto.GraphDataReqDTO;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Watches the candle windows each client asks for and, once a client pans backwards (the new
+ * window ends where the previous one started), warms the next older window of the same width
+ * into the {@link CandleCache}. Later pages of the same window need nothing: they are cut from
+ * the segments already loaded for page 0.
+ * <p>
+ * Prefetches run under a global budget of windows ({@code candles.prefetch.max-concurrent}) and
+ * only while the upstream bulkhead keeps {@code candles.prefetch.reserve} permits free. Their
+ * upstream calls go out on the gateway's background permits, so however many segments a window
+ * needs, prefetching never holds a permit an interactive request could use.
+ */
+@Component
+public class CandlePrefetcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(CandlePrefetcher.class);
+
+    private final ChartService chartService;
+    private final CandleUpstreamGateway upstream;
+    private final DownsampleDecider decider;
+    private final Semaphore budget;
+    private final int reserve;
+    private final int maxClients;
+    private final Map<String, Access> lastAccess;
+
+    private final LongAdder panDetected = new LongAdder();
+    private final LongAdder issued = new LongAdder();
+    private final LongAdder skippedBudget = new LongAdder();
+    private final LongAdder skippedBusy = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+
+    public CandlePrefetcher(ChartService chartService,
+                            CandleUpstreamGateway upstream,
+                            DownsampleDecider decider,
+                            @Value("${candles.prefetch.max-concurrent:2}") int maxConcurrent,
+                            @Value("${candles.prefetch.reserve:4}") int reserve,
+                            @Value("${candles.prefetch.max-clients:4096}") int maxClients) {
+        this.chartService = chartService;
+        this.upstream = upstream;
+        this.decider = decider;
+        this.budget = new Semaphore(maxConcurrent);
+        this.reserve = reserve;
+        this.maxClients = maxClients;
+        this.lastAccess = new LinkedHashMap<String, Access>(256, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Access> eldest) {
+                return size() > CandlePrefetcher.this.maxClients;
+            }
+        };
+    }
+
+    /** Called after a window was served to {@code client} (session id or address). */
+    public void onServed(String client, GraphDataReqDTO req) {
+        if (client == null || req.getSymbol() == null || req.getFrom() == null || req.getTo() == null) return;
+
+        String gap = decider.decideGap(req, req.getTargetPoints());
+        Access now = new Access(req.getSymbol().toUpperCase(), gap, req.getFrom().toEpochMilli(), req.getTo().toEpochMilli());
+        Access prev;
+        synchronized (lastAccess) {
+            prev = lastAccess.put(client, now);
+        }
+        if (prev == null || !now.pansBackFrom(prev, decider.gapMillis(gap))) return;
+        panDetected.increment();
+
+        long width = now.toMs - now.fromMs;
+        GraphDataReqDTO older = req.toBuilder()
+                .from(Instant.ofEpochMilli(now.fromMs - width - 1))
+                .to(Instant.ofEpochMilli(now.fromMs - 1))
+                .build();
+        prefetch(older);
+    }
+
+    private void prefetch(GraphDataReqDTO req) {
+        if (!upstream.hasHeadroom(reserve)) {
+            skippedBusy.increment();
+            return;
+        }
+        if (!budget.tryAcquire()) {
+            skippedBudget.increment();
+            return;
+        }
+        issued.increment();
+        chartService.prefetchAsync(req)
+                .doFinally(s -> budget.release())
+                .subscribe(page -> { }, e -> {
+                    failed.increment();
+                    logger.debug("Candle prefetch failed for {}: {}", req.getSymbol(), e.toString());
+                });
+    }
+
+    public Map<String, Object> stats() {
+        int clients;
+        synchronized (lastAccess) {
+            clients = lastAccess.size();
+        }
+        return Map.of(
+            "clients", clients,
+            "panDetected", panDetected.sum(),
+            "issued", issued.sum(),
+            "skippedBudget", skippedBudget.sum(),
+            "skippedBusy", skippedBusy.sum(),
+            "failed", failed.sum()
+        );
+    }
+
+    private static final class Access {
+        final String symbol;
+        final String gap;
+        final long fromMs;
+        final long toMs;
+
+        Access(String symbol, String gap, long fromMs, long toMs) {
+            this.symbol = symbol;
+            this.gap = gap;
+            this.fromMs = fromMs;
+            this.toMs = toMs;
+        }
+
+        /** Same series, and this window ends at (or one bar into) the start of {@code prev}. */
+        boolean pansBackFrom(Access prev, long gapMs) {
+            return symbol.equals(prev.symbol) && gap.equals(prev.gap)
+                    && toMs < prev.toMs
+                    && toMs >= prev.fromMs - gapMs
+                    && toMs <= prev.fromMs + gapMs;
+        }
+    }
+}
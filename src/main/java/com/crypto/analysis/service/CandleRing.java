@@ -0,0 +1,113 @@
+package com.crypto.analysis.service;
+
+import com.crypto.analysis.dto.CandleBlock;
+
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fixed-size off-heap ring of the most recent bars of one (symbol, interval), 48 bytes per
+ * slot (i64 time, f64 open, high, low, close, volume). One writer at a time; readers never
+ * lock, they copy optimistically and retry when the sequence number moved (seqlock).
+ */
+public class CandleRing {
+
+    private static final int SLOT_BYTES = 48;
+
+    private final int capacity;
+    private final ByteBuffer slots;
+    private final AtomicLong seq = new AtomicLong();   // odd while a write is in progress
+    private volatile long head;                         // bars ever written; next slot is head % capacity
+    private long lastTime = Long.MIN_VALUE;             // writer side only
+
+    public CandleRing(int capacity) {
+        this.capacity = capacity;
+        this.slots = ByteBuffer.allocateDirect(capacity * SLOT_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * Applies ascending bars: a bar with the newest time replaces it (the open bar moved),
+     * newer bars are appended, older ones are ignored.
+     */
+    public synchronized void upsert(CandleBlock bars) {
+        seq.incrementAndGet();
+        VarHandle.storeStoreFence();
+        long h = head;
+        for (int i = 0; i < bars.size(); i++) {
+            long t = bars.time(i);
+            if (h > 0 && t == lastTime) {
+                write((int) ((h - 1) % capacity), bars, i);
+            } else if (t > lastTime) {
+                write((int) (h % capacity), bars, i);
+                h++;
+                lastTime = t;
+            }
+        }
+        head = h;
+        seq.incrementAndGet();
+    }
+
+    private void write(int slot, CandleBlock bars, int i) {
+        int at = slot * SLOT_BYTES;
+        slots.putLong(at, bars.time(i));
+        slots.putDouble(at + 8, bars.open(i));
+        slots.putDouble(at + 16, bars.high(i));
+        slots.putDouble(at + 24, bars.low(i));
+        slots.putDouble(at + 32, bars.close(i));
+        slots.putDouble(at + 40, bars.volume(i));
+    }
+
+    /**
+     * Copies the latest {@code n} bars into {@code out} as six little-endian f64 columns
+     * (time, open, high, low, close, volume) starting at {@code offset}, oldest first, and
+     * returns how many were copied. {@code out} needs room for {@code 48 * n} bytes. Allocates
+     * nothing.
+     */
+    public int copyLatestColumns(int n, ByteBuffer out, int offset) {
+        while (true) {
+            long s1 = seq.get();
+            if ((s1 & 1) != 0) {
+                Thread.onSpinWait();
+                continue;
+            }
+            long h = head;
+            int count = (int) Math.min(Math.max(n, 0), Math.min(h, capacity));
+            for (int i = 0; i < count; i++) {
+                int at = (int) ((h - count + i) % capacity) * SLOT_BYTES;
+                out.putDouble(offset + i * 8, slots.getLong(at));
+                for (int col = 1; col < 6; col++) {
+                    out.putDouble(offset + (col * count + i) * 8, slots.getDouble(at + col * 8));
+                }
+            }
+            VarHandle.loadLoadFence();
+            if (seq.get() == s1) return count;
+        }
+    }
+
+    /** On-heap copy of the latest {@code n} bars, for the JSON representation. */
+    public CandleBlock latest(int n) {
+        int count = (int) Math.min(Math.max(n, 0), Math.min(head, capacity));
+        ByteBuffer cols = ByteBuffer.allocate(count * SLOT_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        count = copyLatestColumns(count, cols, 0);
+        CandleBlock.Builder b = new CandleBlock.Builder(count);
+        for (int i = 0; i < count; i++) {
+            b.add((long) cols.getDouble(i * 8),
+                    cols.getDouble((count + i) * 8),
+                    cols.getDouble((2 * count + i) * 8),
+                    cols.getDouble((3 * count + i) * 8),
+                    cols.getDouble((4 * count + i) * 8),
+                    cols.getDouble((5 * count + i) * 8));
+        }
+        return b.build();
+    }
+
+    public int size() {
+        return (int) Math.min(head, capacity);
+    }
+}
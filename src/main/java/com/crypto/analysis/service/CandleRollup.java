@@ -0,0 +1,140 @@
+package com.crypto.analysis.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.crypto.analysis.dto.CandleBlock;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Derives coarse bars (5m .. 7d) from 1m bars already held in the {@link CandleCache}:
+ * first open, max high, min low, last close, summed volume.
+ */
+@Component
+public class CandleRollup {
+
+    public static final String SOURCE_GAP = "+1MINUTES";
+    private static final long SOURCE_GAP_MS = 60_000L;
+    private static final long SOURCE_SPAN_MS = SOURCE_GAP_MS * CandleCache.BARS_PER_SEGMENT;
+
+    private final CandleCache candleCache;
+    private final int maxSourceSegments;
+
+    private final LongAdder derivedSegments = new LongAdder();
+    private final LongAdder derivedBars = new LongAdder();
+
+    public CandleRollup(CandleCache candleCache,
+                        @Value("${candles.rollup.max-source-segments:2048}") int maxSourceSegments) {
+        this.candleCache = candleCache;
+        this.maxSourceSegments = maxSourceSegments;
+    }
+
+    /**
+     * Rolls up the newest run of cached, closed 1m bars inside {@code [fromMs, toMs)}: every
+     * coarse bar whose 1m bars all lie in that run. The run ends where the newest cached 1m
+     * segment in range stops being closed and reaches back until a 1m segment is missing or not
+     * closed, so a chart switching to a coarser gap gets its recent bars without going upstream
+     * even when older 1m history was never loaded. Returns {@code null} when no coarse bar is
+     * covered.
+     */
+    public Derived derive(String symbol, String gap, long gapMs, long fromMs, long toMs) {
+        if (SOURCE_GAP.equals(gap) || gapMs <= SOURCE_GAP_MS || fromMs >= toMs) return null;
+
+        long firstBucket = Math.floorDiv(fromMs, SOURCE_SPAN_MS);
+        long bucket = Math.floorDiv(toMs - 1, SOURCE_SPAN_MS);
+        int visited = 0;
+        Deque<CandleBlock> run = new ArrayDeque<>();    // oldest first
+        long runEnd = Long.MIN_VALUE;
+        long runStart = Long.MIN_VALUE;
+        for (; bucket >= firstBucket && visited < maxSourceSegments; bucket--, visited++) {
+            long segStart = Math.max(fromMs, bucket * SOURCE_SPAN_MS);
+            CandleCache.Segment seg = candleCache.peek(new CandleCache.Key(symbol, SOURCE_GAP, bucket));
+            if (run.isEmpty()) {
+                // the newest segment holding closed bars in range; later ones may be missing or open
+                if (seg == null || seg.getCoveredUntil() <= segStart) continue;
+                runEnd = Math.min(seg.getCoveredUntil(), toMs);
+            } else if (seg == null || seg.getCoveredUntil() < (bucket + 1) * SOURCE_SPAN_MS) {
+                break;
+            }
+            run.addFirst(seg.getCandles());
+            runStart = segStart;
+        }
+        if (run.isEmpty()) return null;
+
+        long from = Math.floorDiv(runStart + gapMs - 1, gapMs) * gapMs;
+        long until = Math.floorDiv(runEnd, gapMs) * gapMs;
+        if (until <= from) return null;
+
+        Accumulator acc = new Accumulator(gapMs);
+        for (CandleBlock fine : run) acc.add(fine, fine.lowerBound(from), fine.lowerBound(until));
+        CandleBlock candles = acc.finish(until);
+        derivedSegments.increment();
+        derivedBars.add(candles.size());
+        return new Derived(candles, from, until);
+    }
+
+    /** Rolls up an ascending 1m block in one pass; the last bar is kept even if incomplete. */
+    public CandleBlock rollup(CandleBlock fine, long gapMs) {
+        Accumulator acc = new Accumulator(gapMs);
+        acc.add(fine, 0, fine.size());
+        return acc.finish(Long.MAX_VALUE);
+    }
+
+    public Map<String, Object> stats() {
+        return Map.of(
+            "derivedSegments", derivedSegments.sum(),
+            "derivedBars", derivedBars.sum()
+        );
+    }
+
+    @lombok.Value
+    public static class Derived {
+        CandleBlock candles;
+        long coveredFrom;         // epoch millis, inclusive; aligned to the coarse gap
+        long coveredUntil;        // epoch millis, exclusive; aligned to the coarse gap
+    }
+
+    private static final class Accumulator {
+        private final long gapMs;
+        private final CandleBlock.Builder out = new CandleBlock.Builder();
+        private long start = Long.MIN_VALUE;
+        private double open, high, low, close, volume;
+
+        Accumulator(long gapMs) {
+            this.gapMs = gapMs;
+        }
+
+        void add(CandleBlock fine, int from, int to) {
+            for (int i = from; i < to; i++) {
+                long bar = Math.floorDiv(fine.time(i), gapMs) * gapMs;
+                if (bar != start) {
+                    if (start != Long.MIN_VALUE) emit();
+                    start = bar;
+                    open = fine.open(i);
+                    high = fine.high(i);
+                    low = fine.low(i);
+                    volume = fine.volume(i);
+                } else {
+                    high = Math.max(high, fine.high(i));
+                    low = Math.min(low, fine.low(i));
+                    double v = fine.volume(i);
+                    if (!Double.isNaN(v)) volume = Double.isNaN(volume) ? v : volume + v;
+                }
+                close = fine.close(i);
+            }
+        }
+
+        CandleBlock finish(long closedEnd) {
+            if (start != Long.MIN_VALUE && start < closedEnd) emit();
+            return out.build();
+        }
+
+        private void emit() {
+            out.add(start, open, high, low, close, volume);
+        }
+    }
+}
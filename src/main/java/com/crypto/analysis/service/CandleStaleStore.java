@@ -0,0 +1,108 @@
+package com.crypto.analysis.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.crypto.analysis.dto.CandlePage;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The last page served for each recent candle window, kept so a slow or failing upstream can
+ * be answered with slightly old data instead of an error. Entries older than
+ * {@code candles.stale.max-age-ms} are never served.
+ */
+@Component
+public class CandleStaleStore {
+
+    private final int maxWindows;
+    private final long maxAgeMs;
+    private final Duration softTimeout;
+    private final Map<CandleVersionTracker.WindowKey, Entry> pages;
+
+    private final LongAdder servedStale = new LongAdder();
+    private final LongAdder tooOld = new LongAdder();
+
+    public CandleStaleStore(@Value("${candles.stale.max-windows:2048}") int maxWindows,
+                            @Value("${candles.stale.max-age-ms:300000}") long maxAgeMs,
+                            @Value("${candles.stale.soft-timeout-ms:1500}") long softTimeoutMs) {
+        this.maxWindows = maxWindows;
+        this.maxAgeMs = maxAgeMs;
+        this.softTimeout = Duration.ofMillis(softTimeoutMs);
+        this.pages = new LinkedHashMap<CandleVersionTracker.WindowKey, Entry>(256, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<CandleVersionTracker.WindowKey, Entry> eldest) {
+                return size() > CandleStaleStore.this.maxWindows;
+            }
+        };
+    }
+
+    public void put(CandleVersionTracker.WindowKey key, CandlePage page) {
+        synchronized (pages) {
+            pages.put(key, new Entry(page, System.currentTimeMillis()));
+        }
+    }
+
+    /** The retained page if it is young enough to be served, otherwise {@code null}. */
+    public Entry get(CandleVersionTracker.WindowKey key) {
+        Entry e;
+        synchronized (pages) {
+            e = pages.get(key);
+        }
+        if (e == null) return null;
+        if (e.ageMillis() > maxAgeMs) {
+            tooOld.increment();
+            return null;
+        }
+        return e;
+    }
+
+    /** How long a request with a retained copy waits for fresh data before taking the copy. */
+    public Duration softTimeout() {
+        return softTimeout;
+    }
+
+    Served serve(Entry e) {
+        servedStale.increment();
+        return new Served(e.getPage(), true, e.ageMillis());
+    }
+
+    public Map<String, Object> stats() {
+        int size;
+        synchronized (pages) {
+            size = pages.size();
+        }
+        return Map.of(
+            "windows", size,
+            "servedStale", servedStale.sum(),
+            "tooOld", tooOld.sum()
+        );
+    }
+
+    @lombok.Value
+    public static class Entry {
+        CandlePage page;
+        long storedAt;            // epoch millis
+
+        public long ageMillis() {
+            return System.currentTimeMillis() - storedAt;
+        }
+    }
+
+    /** A page as handed to the controller; {@code ageMillis} is only meaningful when stale. */
+    @lombok.Value
+    public static class Served {
+        CandlePage page;
+        boolean stale;
+        long ageMillis;
+
+        public static Served fresh(CandlePage page) {
+            return new Served(page, false, 0);
+        }
+    }
+}
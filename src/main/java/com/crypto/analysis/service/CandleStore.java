@@ -0,0 +1,264 @@
+package com.crypto.analysis.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.crypto.analysis.dto.CandleBlock;
+
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * Local, append-only store of closed candle segments, one pair of files per (symbol, gap) under
+ * {@code candles.store.dir}:
+ * <pre>
+ *  BTC_1h.dat  48-byte records: i64 time, f64 open, high, low, close, volume (little endian)
+ *  BTC_1h.idx  24-byte entries: i64 bucket, i64 first record, i64 record count
+ * </pre>
+ * Only complete, closed {@link CandleCache} segments are written, so stored bars never change.
+ * An index entry is appended after its records and is what makes them visible; a torn write
+ * at the end of the data file is cut off on open; both files are forced to disk before an append
+ * returns, data first. Reads go through a read-only mapping of the data file, so deep history is
+ * served from the OS page cache and survives restarts.
+ * <p>
+ * File work runs on {@link Schedulers#boundedElastic()} through {@link #readAsync} and
+ * {@link #appendAsync}, never on the caller's event loop. The store stays off unless
+ * {@code candles.store.dir} names a directory: a temp directory would not outlive cleanup.
+ */
+@Component
+public class CandleStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(CandleStore.class);
+
+    static final int RECORD_BYTES = 48;
+    static final int INDEX_BYTES = 24;
+    private static final Pattern SAFE_NAME = Pattern.compile("[A-Z0-9_-]{1,32}");
+
+    private final boolean enabled;
+    private final Path dir;
+    private final DownsampleDecider decider;
+    private final Map<String, Series> series = new ConcurrentHashMap<>();
+
+    private final LongAdder segmentsRead = new LongAdder();
+    private final LongAdder segmentsWritten = new LongAdder();
+    private final LongAdder writeErrors = new LongAdder();
+
+    public CandleStore(DownsampleDecider decider,
+                       @Value("${candles.store.enabled:true}") boolean enabled,
+                       @Value("${candles.store.dir:}") String dir) {
+        this.decider = decider;
+        this.enabled = enabled && !dir.isBlank();
+        this.dir = this.enabled ? Paths.get(dir) : null;
+        if (enabled && !this.enabled) logger.warn("candles.store.dir is not set, the candle store is off");
+    }
+
+    /**
+     * {@code false} when the segment is known not to be stored, so the caller can skip
+     * {@link #readAsync}; {@code true} when it is, or when its series was not opened yet.
+     */
+    public boolean mayContain(String symbol, String gap, long bucket) {
+        if (!enabled || !SAFE_NAME.matcher(symbol).matches()) return false;
+        Series s = series.get(name(symbol, gap));
+        return s == null || s.contains(bucket);
+    }
+
+    /** {@link #read} on a bounded-elastic thread; empty when the segment is not stored. */
+    public Mono<CandleBlock> readAsync(String symbol, String gap, long bucket) {
+        return Mono.fromCallable(() -> read(symbol, gap, bucket)).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    /** {@link #append} on a bounded-elastic thread, without waiting for it. */
+    public void appendAsync(String symbol, String gap, long bucket, CandleBlock candles) {
+        if (!enabled) return;
+        Schedulers.boundedElastic().schedule(() -> append(symbol, gap, bucket, candles));
+    }
+
+    /** The stored segment, or {@code null} if it was never persisted. Blocks on file I/O. */
+    public CandleBlock read(String symbol, String gap, long bucket) {
+        Series s = series(symbol, gap);
+        if (s == null) return null;
+        try {
+            CandleBlock block = s.read(bucket);
+            if (block != null) segmentsRead.increment();
+            return block;
+        } catch (IOException e) {
+            logger.warn("Could not read {} {} bucket {}: {}", symbol, gap, bucket, e.toString());
+            return null;
+        }
+    }
+
+    /**
+     * Persists a complete, closed segment; a bucket that is already stored is left alone.
+     * Blocks on file I/O until the segment is on disk.
+     */
+    public void append(String symbol, String gap, long bucket, CandleBlock candles) {
+        Series s = series(symbol, gap);
+        if (s == null) return;
+        try {
+            if (s.append(bucket, candles)) segmentsWritten.increment();
+        } catch (IOException e) {
+            writeErrors.increment();
+            logger.warn("Could not persist {} {} bucket {}: {}", symbol, gap, bucket, e.toString());
+        }
+    }
+
+    public Map<String, Object> stats() {
+        long bytes = 0;
+        for (Series s : series.values()) bytes += s.size();
+        return Map.of(
+            "enabled", enabled,
+            "series", series.size(),
+            "bytes", bytes,
+            "segmentsRead", segmentsRead.sum(),
+            "segmentsWritten", segmentsWritten.sum(),
+            "writeErrors", writeErrors.sum()
+        );
+    }
+
+    @PreDestroy
+    void close() {
+        for (Series s : series.values()) s.close();
+    }
+
+    private String name(String symbol, String gap) {
+        return symbol + "_" + decider.gapToInterval(gap);
+    }
+
+    private Series series(String symbol, String gap) {
+        if (!enabled || !SAFE_NAME.matcher(symbol).matches()) return null;
+        String name = name(symbol, gap);
+        try {
+            return series.computeIfAbsent(name, n -> {
+                try {
+                    return new Series(dir.resolve(n + ".dat"), dir.resolve(n + ".idx"));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            writeErrors.increment();
+            logger.warn("Could not open candle store {}: {}", name, e.getCause().toString());
+            return null;
+        }
+    }
+
+    private static final class Series {
+        private final FileChannel data;
+        private final FileChannel index;
+        private final Map<Long, long[]> buckets = new ConcurrentHashMap<>();   // bucket -> {first record, count}
+        private long records;
+        private ByteBuffer mapped;
+
+        Series(Path dataPath, Path indexPath) throws IOException {
+            Files.createDirectories(dataPath.getParent());
+            data = FileChannel.open(dataPath, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            index = FileChannel.open(indexPath, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            load();
+        }
+
+        private void load() throws IOException {
+            long entries = index.size() / INDEX_BYTES;
+            ByteBuffer buf = ByteBuffer.allocate((int) (entries * INDEX_BYTES)).order(ByteOrder.LITTLE_ENDIAN);
+            while (buf.hasRemaining() && index.read(buf, buf.position()) > 0) { }
+            buf.flip();
+            long dataRecords = data.size() / RECORD_BYTES;
+            for (long i = 0; i < entries; i++) {
+                long bucket = buf.getLong(), first = buf.getLong(), count = buf.getLong();
+                if (first + count > dataRecords) {
+                    entries = i;
+                    break;
+                }
+                buckets.put(bucket, new long[] {first, count});
+                records = Math.max(records, first + count);
+            }
+            // drop whatever a crash left behind the last complete entry
+            index.truncate(entries * INDEX_BYTES);
+            data.truncate(records * RECORD_BYTES);
+            remap();
+        }
+
+        boolean contains(long bucket) {
+            return buckets.containsKey(bucket);
+        }
+
+        synchronized CandleBlock read(long bucket) throws IOException {
+            long[] entry = buckets.get(bucket);
+            if (entry == null) return null;
+            if (mapped.capacity() < (entry[0] + entry[1]) * RECORD_BYTES) remap();
+            ByteBuffer m = mapped;
+            CandleBlock.Builder b = new CandleBlock.Builder((int) entry[1]);
+            for (long r = entry[0]; r < entry[0] + entry[1]; r++) {
+                int at = (int) (r * RECORD_BYTES);
+                b.add(m.getLong(at), m.getDouble(at + 8), m.getDouble(at + 16), m.getDouble(at + 24),
+                        m.getDouble(at + 32), m.getDouble(at + 40));
+            }
+            return b.build();
+        }
+
+        synchronized boolean append(long bucket, CandleBlock candles) throws IOException {
+            if (buckets.containsKey(bucket)) return false;
+            if ((records + candles.size()) * RECORD_BYTES > Integer.MAX_VALUE) {
+                throw new IOException("candle store file is full");
+            }
+            ByteBuffer buf = ByteBuffer.allocate(candles.size() * RECORD_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            for (int i = 0; i < candles.size(); i++) {
+                buf.putLong(candles.time(i))
+                   .putDouble(candles.open(i))
+                   .putDouble(candles.high(i))
+                   .putDouble(candles.low(i))
+                   .putDouble(candles.close(i))
+                   .putDouble(candles.volume(i));
+            }
+            buf.flip();
+            long at = records * RECORD_BYTES;
+            while (buf.hasRemaining()) at += data.write(buf, at);
+            // the records are durable before the index entry that makes them visible
+            data.force(false);
+
+            ByteBuffer entry = ByteBuffer.allocate(INDEX_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            entry.putLong(bucket).putLong(records).putLong(candles.size()).flip();
+            long idxAt = (long) buckets.size() * INDEX_BYTES;
+            while (entry.hasRemaining()) idxAt += index.write(entry, idxAt);
+            index.force(false);
+
+            buckets.put(bucket, new long[] {records, candles.size()});
+            records += candles.size();
+            return true;
+        }
+
+        /** Maps everything written so far; appends are picked up by the next read that needs them. */
+        private void remap() throws IOException {
+            mapped = data.map(FileChannel.MapMode.READ_ONLY, 0, records * RECORD_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        }
+
+        long size() {
+            return records * RECORD_BYTES;
+        }
+
+        void close() {
+            try {
+                data.close();
+                index.close();
+            } catch (IOException ignored) {
+                // shutting down
+            }
+        }
+    }
+}
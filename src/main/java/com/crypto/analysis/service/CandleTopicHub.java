@@ -0,0 +1,365 @@
+package com.crypto.analysis.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+
+import com.crypto.analysis.dto.CandleBlock;
+import com.crypto.analysis.dto.GraphDataReqDTO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Live candles for WebSocket subscribers. Each (symbol, interval) topic has one shared poller
+ * on {@link ChartService#getDeltaAsync}, however many sessions listen to it. Every session
+ * gets its own conflating outbox: while a send is in progress newer versions of a bar replace
+ * the queued one (latest wins), so a slow client costs at most one bar per timestamp. Sends go
+ * through a {@link ConcurrentWebSocketSessionDecorator}; a session whose send runs past
+ * {@code candles.push.send-time-limit-ms} or whose buffer outgrows
+ * {@code candles.push.buffer-limit-bytes} is closed, so stalled browsers cannot hold the shared
+ * send threads.
+ */
+@Component
+public class CandleTopicHub {
+
+    private static final Logger logger = LoggerFactory.getLogger(CandleTopicHub.class);
+
+    private final ChartService chartService;
+    private final DownsampleDecider decider;
+    private final ObjectMapper objectMapper;
+    private final long pollMs;
+    private final int sendTimeLimitMs;
+    private final int bufferLimitBytes;
+
+    private final Map<Topic, Feed> feeds = new HashMap<>();
+    private final Map<String, Subscriber> subscribers = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService poller;
+    private final ExecutorService sender;
+
+    private final LongAdder polls = new LongAdder();
+    private final LongAdder pollErrors = new LongAdder();
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder sendNanos = new LongAdder();
+    private final AtomicLong maxSendNanos = new AtomicLong();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder sendErrors = new LongAdder();
+    private final LongAdder stalled = new LongAdder();
+
+    public CandleTopicHub(ChartService chartService,
+                          DownsampleDecider decider,
+                          ObjectMapper objectMapper,
+                          @Value("${candles.push.poll-ms:2000}") long pollMs,
+                          @Value("${candles.push.send-threads:4}") int sendThreads,
+                          @Value("${candles.push.send-time-limit-ms:5000}") int sendTimeLimitMs,
+                          @Value("${candles.push.buffer-limit-bytes:524288}") int bufferLimitBytes) {
+        this.chartService = chartService;
+        this.decider = decider;
+        this.objectMapper = objectMapper;
+        this.pollMs = pollMs;
+        this.sendTimeLimitMs = sendTimeLimitMs;
+        this.bufferLimitBytes = bufferLimitBytes;
+        this.poller = Executors.newSingleThreadScheduledExecutor(daemon("candle-push-poll"));
+        this.sender = Executors.newFixedThreadPool(sendThreads, daemon("candle-push-send"));
+        long sweepMs = Math.max(100, sendTimeLimitMs / 2);
+        poller.scheduleWithFixedDelay(this::closeStalled, sweepMs, sweepMs, TimeUnit.MILLISECONDS);
+    }
+
+    /** Interval names are normalized through the gap mapping, so "1D" and "1d" share a topic. */
+    public Topic topic(String symbol, String interval) {
+        return new Topic(symbol.toUpperCase(), decider.gapToInterval(decider.mapIntervalToGap(interval)));
+    }
+
+    public void subscribe(WebSocketSession session, Topic topic) {
+        Subscriber sub = subscribers.computeIfAbsent(session.getId(), id -> new Subscriber(session));
+        if (!sub.topics.add(topic)) return;
+        Feed feed;
+        synchronized (feeds) {
+            feed = feeds.computeIfAbsent(topic, Feed::new);
+            feed.subscribers.add(sub);
+        }
+        // the bars already known to the topic, so the chart does not wait for the next change
+        if (!feed.last.isEmpty()) sub.offer(topic, feed.last);
+    }
+
+    /**
+     * In-process consumer of a topic's changed bars (ascending). Keeps the topic's poller
+     * running until the listener is removed with {@link #unlisten}.
+     */
+    public void listen(Topic topic, Consumer<CandleBlock> listener) {
+        synchronized (feeds) {
+            feeds.computeIfAbsent(topic, Feed::new).listeners.add(listener);
+        }
+    }
+
+    public void unlisten(Topic topic, Consumer<CandleBlock> listener) {
+        synchronized (feeds) {
+            Feed feed = feeds.get(topic);
+            if (feed == null) return;
+            feed.listeners.remove(listener);
+            stopIfIdle(feed);
+        }
+    }
+
+    public void unsubscribe(WebSocketSession session, Topic topic) {
+        Subscriber sub = subscribers.get(session.getId());
+        if (sub != null && sub.topics.remove(topic)) leave(sub, topic);
+    }
+
+    public void disconnect(WebSocketSession session) {
+        Subscriber sub = subscribers.remove(session.getId());
+        if (sub == null) return;
+        for (Topic topic : sub.topics) leave(sub, topic);
+        sub.topics.clear();
+    }
+
+    /**
+     * Closes sessions stuck in one send for longer than the limit. The decorator only notices on
+     * the next send, which never comes while the stuck one holds the drain.
+     */
+    private void closeStalled() {
+        for (Subscriber sub : subscribers.values()) {
+            if (sub.session.getTimeSinceSendStarted() > sendTimeLimitMs) {
+                stalled.increment();
+                logger.debug("Candle push to {} stalled, closing it", sub.session.getId());
+                sub.abandon();
+            }
+        }
+    }
+
+    private void leave(Subscriber sub, Topic topic) {
+        synchronized (feeds) {
+            Feed feed = feeds.get(topic);
+            if (feed == null) return;
+            feed.subscribers.remove(sub);
+            stopIfIdle(feed);
+        }
+    }
+
+    /** Call with the {@code feeds} lock held. */
+    private void stopIfIdle(Feed feed) {
+        if (feed.subscribers.isEmpty() && feed.listeners.isEmpty()) {
+            feed.task.cancel(false);
+            feeds.remove(feed.topic);
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Integer> perTopic = new LinkedHashMap<>();
+        synchronized (feeds) {
+            feeds.forEach((t, f) -> perTopic.put(t.getSymbol() + ":" + t.getInterval(), f.subscribers.size()));
+        }
+        long n = sent.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("sessions", subscribers.size());
+        stats.put("topics", perTopic);
+        stats.put("polls", polls.sum());
+        stats.put("pollErrors", pollErrors.sum());
+        stats.put("sent", n);
+        stats.put("avgSendMs", n == 0 ? 0.0 : sendNanos.sum() / 1e6 / n);
+        stats.put("maxSendMs", maxSendNanos.get() / 1e6);
+        stats.put("dropped", dropped.sum());
+        stats.put("sendErrors", sendErrors.sum());
+        stats.put("stalled", stalled.sum());
+        return stats;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        poller.shutdownNow();
+        sender.shutdownNow();
+    }
+
+    private static java.util.concurrent.ThreadFactory daemon(String name) {
+        AtomicInteger n = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, name + "-" + n.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+
+    private static boolean sameBar(CandleBlock a, int i, CandleBlock b, int j) {
+        return Double.compare(a.open(i), b.open(j)) == 0
+                && Double.compare(a.high(i), b.high(j)) == 0
+                && Double.compare(a.low(i), b.low(j)) == 0
+                && Double.compare(a.close(i), b.close(j)) == 0
+                && Double.compare(a.volume(i), b.volume(j)) == 0;
+    }
+
+    @lombok.Value
+    public static class Topic {
+        String symbol;
+        String interval;
+    }
+
+    /** The shared upstream side of one topic. */
+    private final class Feed {
+        final Topic topic;
+        final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+        final Set<Consumer<CandleBlock>> listeners = ConcurrentHashMap.newKeySet();
+        final AtomicBoolean polling = new AtomicBoolean();
+        final ScheduledFuture<?> task;
+        volatile CandleBlock last = CandleBlock.EMPTY;   // bars of the previous poll
+        volatile long since;
+
+        Feed(Topic topic) {
+            this.topic = topic;
+            long gapMs = decider.gapMillis(decider.mapIntervalToGap(topic.getInterval()));
+            // last closed bar and the open one
+            this.since = (Math.floorDiv(System.currentTimeMillis(), gapMs) - 1) * gapMs;
+            this.task = poller.scheduleWithFixedDelay(this::poll, 0, pollMs, TimeUnit.MILLISECONDS);
+        }
+
+        void poll() {
+            if (!polling.compareAndSet(false, true)) return;
+            polls.increment();
+            GraphDataReqDTO req = GraphDataReqDTO.builder()
+                    .symbol(topic.getSymbol())
+                    .interval(topic.getInterval())
+                    .since(Instant.ofEpochMilli(since))
+                    .build();
+            chartService.getDeltaAsync(req)
+                    .doFinally(s -> polling.set(false))
+                    .subscribe(page -> publish(page.getContent()), e -> {
+                        pollErrors.increment();
+                        logger.debug("Candle poll failed for {}: {}", topic, e.toString());
+                    });
+        }
+
+        private void publish(CandleBlock bars) {
+            if (bars.isEmpty()) return;
+            CandleBlock previous = last;
+            CandleBlock.Builder changed = new CandleBlock.Builder(bars.size());
+            for (int i = 0; i < bars.size(); i++) {
+                int j = previous.lowerBound(bars.time(i));
+                if (j < previous.size() && previous.time(j) == bars.time(i) && sameBar(bars, i, previous, j)) continue;
+                changed.add(bars, i);
+            }
+            last = bars;
+            since = bars.lastTime();
+            if (changed.size() == 0) return;
+            CandleBlock update = changed.build();
+            for (Consumer<CandleBlock> listener : listeners) {
+                try {
+                    listener.accept(update);
+                } catch (RuntimeException e) {
+                    logger.warn("Candle listener failed for {}: {}", topic, e.toString());
+                }
+            }
+            for (Subscriber sub : subscribers) sub.offer(topic, update);
+        }
+    }
+
+    /** The per-session outbox; at most one drain runs per session. */
+    private final class Subscriber {
+        final ConcurrentWebSocketSessionDecorator session;
+        final Set<Topic> topics = ConcurrentHashMap.newKeySet();
+        private Map<Topic, NavigableMap<Long, Bar>> pending = new HashMap<>();
+        private long oldestOfferNanos;
+        private boolean draining;
+
+        Subscriber(WebSocketSession session) {
+            this.session = new ConcurrentWebSocketSessionDecorator(session, sendTimeLimitMs, bufferLimitBytes,
+                    ConcurrentWebSocketSessionDecorator.OverflowStrategy.TERMINATE);
+        }
+
+        /** Drops the session from every topic and closes it; a blocked send then fails. */
+        void abandon() {
+            disconnect(session);
+            try {
+                session.close(CloseStatus.SESSION_NOT_RELIABLE);
+            } catch (IOException ignored) {
+                // already gone
+            }
+        }
+
+        void offer(Topic topic, CandleBlock bars) {
+            synchronized (this) {
+                if (pending.isEmpty()) oldestOfferNanos = System.nanoTime();
+                NavigableMap<Long, Bar> queued = pending.computeIfAbsent(topic, t -> new TreeMap<>());
+                for (int i = 0; i < bars.size(); i++) {
+                    if (queued.put(bars.time(i), new Bar(bars, i)) != null) dropped.increment();
+                }
+                if (draining) return;
+                draining = true;
+            }
+            sender.execute(this::drain);
+        }
+
+        private void drain() {
+            while (true) {
+                Map<Topic, NavigableMap<Long, Bar>> batch;
+                long offered;
+                synchronized (this) {
+                    if (pending.isEmpty() || !session.isOpen()) {
+                        pending.clear();
+                        draining = false;
+                        return;
+                    }
+                    batch = pending;
+                    offered = oldestOfferNanos;
+                    pending = new HashMap<>();
+                }
+                for (Map.Entry<Topic, NavigableMap<Long, Bar>> e : batch.entrySet()) {
+                    send(e.getKey(), e.getValue(), offered);
+                }
+            }
+        }
+
+        private void send(Topic topic, NavigableMap<Long, Bar> bars, long offered) {
+            CandleBlock.Builder b = new CandleBlock.Builder(bars.size());
+            for (Bar bar : bars.values()) b.add(bar.block, bar.index);
+            Map<String, Object> msg = new LinkedHashMap<>();
+            msg.put("type", "candles");
+            msg.put("symbol", topic.getSymbol());
+            msg.put("interval", topic.getInterval());
+            msg.put("candles", b.build());
+            try {
+                session.sendMessage(new TextMessage(objectMapper.writeValueAsString(msg)));
+                long nanos = System.nanoTime() - offered;
+                sent.increment();
+                sendNanos.add(nanos);
+                maxSendNanos.accumulateAndGet(nanos, Math::max);
+            } catch (IOException | RuntimeException e) {
+                sendErrors.increment();
+                logger.debug("Candle push to {} failed: {}", session.getId(), e.toString());
+                abandon();
+            }
+        }
+    }
+
+    private static final class Bar {
+        final CandleBlock block;
+        final int index;
+
+        Bar(CandleBlock block, int index) {
+            this.block = block;
+            this.index = index;
+        }
+    }
+}
@@ -0,0 +1,264 @@
+package com.crypto.analysis.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.crypto.analysis.dto.CandleBlock;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Declarative per-series transforms applied to a candle window on the server, named in
+ * {@code GraphDataReqDTO.transform} as a pipeline such as {@code "scale:109500"},
+ * {@code "pct|cumsum"} or {@code "ratio:ETH|log"}. Every stage maps open, high, low and close;
+ * volume is passed through. All stages run together in one pass over the columns.
+ * <ul>
+ *   <li>{@code scale:k}: multiply by k;</li>
+ *   <li>{@code offset:k}: add k;</li>
+ *   <li>{@code log}: natural logarithm;</li>
+ *   <li>{@code pct}: percent change against the previous bar's close (the first bar against its open);</li>
+ *   <li>{@code cumsum}: each bar shifted by the sum of all earlier closes;</li>
+ *   <li>{@code ratio:SYMBOL}: divided by the other symbol's close at the same time (its last
+ *       close before that time when it has no bar there, NaN before its first bar).</li>
+ * </ul>
+ * Results built only from closed segments are kept, keyed by window and pipeline, next to the
+ * ids of the segments they came from, and reused while those segments are still cached.
+ */
+@Component
+public class CandleTransforms {
+
+    private static final int MAX_PIPELINES = 256;
+
+    private final int maxWindows;
+    private final Map<String, Pipeline> parsed = new LinkedHashMap<String, Pipeline>(64, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Pipeline> eldest) {
+            return size() > MAX_PIPELINES;
+        }
+    };
+    private final Map<CandleVersionTracker.WindowKey, Result> results;
+
+    private final LongAdder applied = new LongAdder();
+    private final LongAdder reused = new LongAdder();
+
+    public CandleTransforms(@Value("${candles.transforms.max-windows:1024}") int maxWindows) {
+        this.maxWindows = maxWindows;
+        this.results = new LinkedHashMap<CandleVersionTracker.WindowKey, Result>(128, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<CandleVersionTracker.WindowKey, Result> eldest) {
+                return size() > CandleTransforms.this.maxWindows;
+            }
+        };
+    }
+
+    /**
+     * The parsed pipeline, or {@code null} when {@code spec} is blank.
+     *
+     * @throws IllegalArgumentException when {@code spec} is not a valid pipeline
+     */
+    public Pipeline pipeline(String spec) {
+        if (spec == null || spec.isBlank()) return null;
+        String key = spec.trim();
+        synchronized (parsed) {
+            Pipeline p = parsed.get(key);
+            if (p != null) return p;
+        }
+        Pipeline p = parse(key);
+        synchronized (parsed) {
+            parsed.put(key, p);
+        }
+        return p;
+    }
+
+    /**
+     * Runs {@code pipeline} over {@code window} (ascending or descending). {@code other} is the
+     * ratio series in ascending order, or {@code null} when the pipeline has no ratio stage.
+     */
+    public CandleBlock apply(Pipeline pipeline, CandleBlock window, CandleBlock other) {
+        int n = window.size();
+        boolean descending = n > 1 && window.time(0) > window.time(n - 1);
+        double[] divisor = other != null ? closesAt(window, other, descending) : null;
+
+        long[] t = new long[n];
+        double[] o = new double[n], h = new double[n], l = new double[n], c = new double[n], v = new double[n];
+        double[] bar = new double[4];
+        double[] state = new double[pipeline.ops.size()];
+        double[] prevClose = new double[pipeline.ops.size()];
+        for (int s = 0; s < state.length; s++) prevClose[s] = Double.NaN;
+
+        for (int k = 0; k < n; k++) {
+            int i = descending ? n - 1 - k : k;      // stateful stages walk forward in time
+            bar[0] = window.open(i);
+            bar[1] = window.high(i);
+            bar[2] = window.low(i);
+            bar[3] = window.close(i);
+            for (int s = 0; s < pipeline.ops.size(); s++) {
+                Op op = pipeline.ops.get(s);
+                double inClose = bar[3];
+                switch (op.kind) {
+                    case SCALE:
+                        for (int j = 0; j < 4; j++) bar[j] *= op.arg;
+                        break;
+                    case OFFSET:
+                        for (int j = 0; j < 4; j++) bar[j] += op.arg;
+                        break;
+                    case LOG:
+                        for (int j = 0; j < 4; j++) bar[j] = Math.log(bar[j]);
+                        break;
+                    case PCT: {
+                        double ref = Double.isNaN(prevClose[s]) ? bar[0] : prevClose[s];
+                        for (int j = 0; j < 4; j++) bar[j] = (bar[j] / ref - 1) * 100;
+                        break;
+                    }
+                    case CUMSUM:
+                        for (int j = 0; j < 4; j++) bar[j] += state[s];
+                        state[s] += inClose;
+                        break;
+                    case RATIO:
+                        for (int j = 0; j < 4; j++) bar[j] /= divisor[i];
+                        break;
+                }
+                prevClose[s] = inClose;
+            }
+            t[i] = window.time(i);
+            o[i] = bar[0];
+            h[i] = bar[1];
+            l[i] = bar[2];
+            c[i] = bar[3];
+            v[i] = window.volume(i);
+        }
+        applied.increment();
+        return new CandleBlock(n, t, o, h, l, c, v);
+    }
+
+    /** The kept result of {@code key} if it was built from exactly {@code segments}. */
+    public CandleBlock cached(CandleVersionTracker.WindowKey key, List<CandleCache.Segment> segments) {
+        Result r;
+        synchronized (results) {
+            r = results.get(key);
+        }
+        if (r == null || r.segmentIds.length != segments.size()) return null;
+        for (int i = 0; i < segments.size(); i++) {
+            if (r.segmentIds[i] != segments.get(i).getId()) return null;
+        }
+        reused.increment();
+        return r.candles;
+    }
+
+    public void keep(CandleVersionTracker.WindowKey key, List<CandleCache.Segment> segments, CandleBlock candles) {
+        long[] ids = new long[segments.size()];
+        for (int i = 0; i < ids.length; i++) ids[i] = segments.get(i).getId();
+        synchronized (results) {
+            results.put(key, new Result(ids, candles));
+        }
+    }
+
+    public Map<String, Object> stats() {
+        int size, pipelines;
+        synchronized (results) {
+            size = results.size();
+        }
+        synchronized (parsed) {
+            pipelines = parsed.size();
+        }
+        return Map.of(
+            "pipelines", pipelines,
+            "windows", size,
+            "applied", applied.sum(),
+            "reused", reused.sum()
+        );
+    }
+
+    /** {@code other}'s close at each bar time of {@code window}, by one forward merge. */
+    private static double[] closesAt(CandleBlock window, CandleBlock other, boolean descending) {
+        int n = window.size();
+        double[] out = new double[n];
+        double last = Double.NaN;
+        int j = 0;
+        for (int k = 0; k < n; k++) {
+            int i = descending ? n - 1 - k : k;
+            long t = window.time(i);
+            while (j < other.size() && other.time(j) <= t) last = other.close(j++);
+            out[i] = last;
+        }
+        return out;
+    }
+
+    private static Pipeline parse(String spec) {
+        List<Op> ops = new ArrayList<>();
+        String ratio = null;
+        for (String part : spec.split("\\|")) {
+            String p = part.trim();
+            if (p.isEmpty()) continue;
+            int colon = p.indexOf(':');
+            String name = (colon < 0 ? p : p.substring(0, colon)).trim().toLowerCase();
+            String arg = colon < 0 ? null : p.substring(colon + 1).trim();
+            switch (name) {
+                case "scale":
+                    ops.add(new Op(Kind.SCALE, number(name, arg)));
+                    break;
+                case "offset":
+                    ops.add(new Op(Kind.OFFSET, number(name, arg)));
+                    break;
+                case "log":
+                    ops.add(new Op(Kind.LOG, 0));
+                    break;
+                case "pct":
+                    ops.add(new Op(Kind.PCT, 0));
+                    break;
+                case "cumsum":
+                    ops.add(new Op(Kind.CUMSUM, 0));
+                    break;
+                case "ratio":
+                    if (arg == null || arg.isEmpty()) throw new IllegalArgumentException("ratio needs a symbol, e.g. ratio:ETH");
+                    if (ratio != null && !ratio.equals(arg.toUpperCase())) {
+                        throw new IllegalArgumentException("Only one ratio symbol per transform");
+                    }
+                    ratio = arg.toUpperCase();
+                    ops.add(new Op(Kind.RATIO, 0));
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown transform: " + name);
+            }
+        }
+        return new Pipeline(Collections.unmodifiableList(ops), ratio);
+    }
+
+    private static double number(String name, String arg) {
+        try {
+            return Double.parseDouble(arg);
+        } catch (NullPointerException | NumberFormatException e) {
+            throw new IllegalArgumentException(name + " needs a number, e.g. " + name + ":2");
+        }
+    }
+
+    private enum Kind { SCALE, OFFSET, LOG, PCT, CUMSUM, RATIO }
+
+    @lombok.Value
+    private static class Op {
+        Kind kind;
+        double arg;
+    }
+
+    /** A parsed transform; {@code ratioSymbol} is the series to load alongside, if any. */
+    @lombok.Value
+    public static class Pipeline {
+        List<Op> ops;
+        String ratioSymbol;
+    }
+
+    @lombok.Value
+    private static class Result {
+        long[] segmentIds;
+        CandleBlock candles;
+    }
+}
@@ -0,0 +1,67 @@
+package com.crypto.analysis.service;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.*;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import com.crypto.analysis.dto.CandlePage;
+import com.crypto.analysis.dto.GraphDataReqDTO;
+
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+/**
+ * Calls {@code /api/ohlc/getCandleGraphData} on the Solr app, either blocking through the
+ * RestTemplate or non-blocking through the shared {@code solrApiWebClient}. Responses are
+ * decoded straight into a columnar {@link CandlePage}.
+ */
+@Component
+public class CandleUpstreamClient {
+
+    private static final String CANDLE_PATH = "/api/ohlc/getCandleGraphData";
+
+    private final RestTemplate restTemplate;
+    private final WebClient solrApiWebClient;
+    private final String solrApiBase;
+    private final Duration timeout;
+
+    public CandleUpstreamClient(@Qualifier("solrApiRestTemplate") RestTemplate restTemplate,
+                                @Qualifier("solrApiWebClient") WebClient solrApiWebClient,
+                                @Value("${solrApi.baseUrl}") String solrApiBase,
+                                @Value("${solrApi.timeout-ms:10000}") long timeoutMs) {
+        this.restTemplate = restTemplate;
+        this.solrApiWebClient = solrApiWebClient;
+        this.solrApiBase = solrApiBase;
+        this.timeout = Duration.ofMillis(timeoutMs);
+    }
+
+    public CandlePage fetch(GraphDataReqDTO req) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        HttpEntity<GraphDataReqDTO> entity = new HttpEntity<>(req, headers);
+
+        ResponseEntity<CandlePage> resp =
+                restTemplate.exchange(solrApiBase + CANDLE_PATH, HttpMethod.POST, entity, CandlePage.class);
+
+        if (!resp.getStatusCode().is2xxSuccessful() || resp.getBody() == null) {
+            throw new RuntimeException("Solr app error: " + resp.getStatusCode());
+        }
+        return resp.getBody();
+    }
+
+    public Mono<CandlePage> fetchAsync(GraphDataReqDTO req) {
+        return solrApiWebClient.post()
+                .uri(CANDLE_PATH)
+                .bodyValue(req)
+                .retrieve()
+                .onStatus(status -> !status.is2xxSuccessful(),
+                        resp -> Mono.error(new RuntimeException("Solr app error: " + resp.statusCode())))
+                .bodyToMono(CandlePage.class)
+                .switchIfEmpty(Mono.error(() -> new RuntimeException("Solr app error: empty body")))
+                .timeout(timeout);
+    }
+}
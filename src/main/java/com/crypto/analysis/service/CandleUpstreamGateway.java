@@ -0,0 +1,323 @@
+package com.crypto.analysis.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.crypto.analysis.dto.CandlePage;
+import com.crypto.analysis.dto.GraphDataReqDTO;
+
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The only way candle requests reach the Solr app. Around {@link CandleUpstreamClient} it adds
+ * <ul>
+ *   <li>a bulkhead: at most {@code solrApi.bulkhead.max-concurrent} calls in flight; further
+ *       calls wait up to {@code solrApi.bulkhead.max-wait-ms} for a permit (reactive callers on a
+ *       bounded-elastic thread) and are rejected after that;</li>
+ *   <li>a separate pool of {@code solrApi.bulkhead.background-max-concurrent} permits for
+ *       background work such as prefetching, so it never takes a permit from interactive calls;</li>
+ *   <li>a per-call deadline ({@code solrApi.timeout-ms}), counted from when the call got its
+ *       permit; a call that runs into it counts as a failure;</li>
+ *   <li>a circuit breaker that fails fast for {@code solrApi.breaker.open-ms} after
+ *       {@code solrApi.breaker.failure-threshold} consecutive failures, then lets one probe through;</li>
+ *   <li>optional hedging on the reactive path: when a call is slower than the recorded
+ *       {@code solrApi.hedge.percentile} latency, a second identical call is raced against it.</li>
+ * </ul>
+ * Rejections surface as 503.
+ */
+@Component
+public class CandleUpstreamGateway {
+
+    private static final int HEDGE_MIN_SAMPLES = 100;
+
+    private final CandleUpstreamClient client;
+    private final Duration deadline;
+    private final Semaphore bulkhead;
+    private final int maxConcurrent;
+    private final long maxWaitMs;
+    private final Semaphore background;
+    private final int backgroundMax;
+    private final CircuitBreaker breaker;
+    private final boolean hedgeEnabled;
+    private final double hedgePercentile;
+
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder bulkheadWaited = new LongAdder();
+    private final LongAdder bulkheadRejected = new LongAdder();
+    private final LongAdder backgroundRejected = new LongAdder();
+    private final LongAdder breakerRejected = new LongAdder();
+    private final LongAdder hedges = new LongAdder();
+
+    public CandleUpstreamGateway(CandleUpstreamClient client,
+                                 @Value("${solrApi.timeout-ms:10000}") long timeoutMs,
+                                 @Value("${solrApi.bulkhead.max-concurrent:16}") int maxConcurrent,
+                                 @Value("${solrApi.bulkhead.max-wait-ms:10000}") long maxWaitMs,
+                                 @Value("${solrApi.bulkhead.background-max-concurrent:2}") int backgroundMax,
+                                 @Value("${solrApi.breaker.failure-threshold:5}") int failureThreshold,
+                                 @Value("${solrApi.breaker.open-ms:10000}") long openMs,
+                                 @Value("${solrApi.hedge.enabled:false}") boolean hedgeEnabled,
+                                 @Value("${solrApi.hedge.percentile:0.95}") double hedgePercentile) {
+        this.client = client;
+        this.deadline = Duration.ofMillis(timeoutMs);
+        this.maxConcurrent = maxConcurrent;
+        this.bulkhead = new Semaphore(maxConcurrent);
+        this.maxWaitMs = maxWaitMs;
+        this.backgroundMax = backgroundMax;
+        this.background = new Semaphore(backgroundMax);
+        this.breaker = new CircuitBreaker(failureThreshold, openMs);
+        this.hedgeEnabled = hedgeEnabled;
+        this.hedgePercentile = hedgePercentile;
+    }
+
+    public CandlePage fetch(GraphDataReqDTO req) {
+        admit();
+        try {
+            awaitPermit(bulkhead, maxWaitMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            rejected(bulkhead);
+            throw busy();
+        }
+        long start = System.nanoTime();
+        try {
+            CandlePage page = client.fetch(req);
+            succeeded(start);
+            return page;
+        } catch (RuntimeException e) {
+            failed(e);
+            throw e;
+        } finally {
+            bulkhead.release();
+        }
+    }
+
+    public Mono<CandlePage> fetchAsync(GraphDataReqDTO req) {
+        return Mono.defer(() -> {
+            admit();
+            Mono<CandlePage> primary = attempt(req, bulkhead, maxWaitMs);
+            if (primary == null) {
+                rejected(bulkhead);
+                return Mono.error(busy());
+            }
+            long hedgeAfterMs = hedgeEnabled ? latency.percentileMillis(hedgePercentile, HEDGE_MIN_SAMPLES) : -1;
+            if (hedgeAfterMs < 0 || hedgeAfterMs >= deadline.toMillis()) {
+                return primary;
+            }
+            // a hedge only goes out if the bulkhead has room for it right now
+            Mono<CandlePage> hedge = Mono.delay(Duration.ofMillis(hedgeAfterMs))
+                    .flatMap(t -> {
+                        Mono<CandlePage> second = attempt(req, bulkhead, 0);
+                        if (second == null) return Mono.<CandlePage>empty();
+                        hedges.increment();
+                        return second;
+                    });
+            return Mono.firstWithValue(primary, hedge);
+        });
+    }
+
+    /**
+     * {@link #fetchAsync} for work nobody is waiting on: it queues for the background permits
+     * only, so it can be slow but never delays an interactive call. Never hedged.
+     */
+    public Mono<CandlePage> fetchBackgroundAsync(GraphDataReqDTO req) {
+        return Mono.defer(() -> {
+            admit();
+            Mono<CandlePage> call = attempt(req, background, maxWaitMs);
+            if (call == null) {
+                rejected(background);
+                return Mono.error(busy());
+            }
+            return call;
+        });
+    }
+
+    /**
+     * One call guarded by {@code permits}. A free permit is taken right away, so the returned Mono
+     * has to be subscribed at once; otherwise the call waits up to {@code waitMs} for a permit on
+     * a bounded-elastic thread, or is {@code null} when it may not wait.
+     */
+    private Mono<CandlePage> attempt(GraphDataReqDTO req, Semaphore permits, long waitMs) {
+        if (permits.tryAcquire()) {
+            return Mono.using(() -> Boolean.TRUE, permit -> call(req), permit -> permits.release());
+        }
+        if (waitMs <= 0) return null;
+        return Mono.using(() -> awaitPermit(permits, waitMs), permit -> call(req), permit -> permits.release())
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    /** The upstream call itself, under the deadline; runs while a permit is held. */
+    private Mono<CandlePage> call(GraphDataReqDTO req) {
+        long start = System.nanoTime();
+        return client.fetchAsync(req)
+                .timeout(deadline)
+                .doOnSuccess(page -> succeeded(start))
+                .doOnError(this::failed)
+                .doOnCancel(breaker::onAbandoned);
+    }
+
+    /** Blocks up to {@code waitMs} for a permit; a call that gets none is rejected as busy. */
+    private Boolean awaitPermit(Semaphore permits, long waitMs) throws InterruptedException {
+        if (permits.tryAcquire()) return Boolean.TRUE;
+        bulkheadWaited.increment();
+        if (waitMs > 0 && permits.tryAcquire(waitMs, TimeUnit.MILLISECONDS)) return Boolean.TRUE;
+        rejected(permits);
+        throw busy();
+    }
+
+    /** A rejected call never reached upstream, so it must not hold on to the breaker's probe. */
+    private void rejected(Semaphore permits) {
+        (permits == background ? backgroundRejected : bulkheadRejected).increment();
+        breaker.onAbandoned();
+    }
+
+    private void admit() {
+        calls.increment();
+        if (!breaker.allow()) {
+            breakerRejected.increment();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Solr app unavailable: circuit open");
+        }
+    }
+
+    private void succeeded(long startNanos) {
+        latency.record(System.nanoTime() - startNanos);
+        breaker.onSuccess();
+    }
+
+    private void failed(Throwable e) {
+        if (e instanceof TimeoutException) timeouts.increment();
+        failures.increment();
+        breaker.onFailure();
+    }
+
+    private static ResponseStatusException busy() {
+        return new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Solr app busy: too many calls in flight");
+    }
+
+    /** True while more than {@code reserve} interactive permits are free and the breaker is closed. */
+    public boolean hasHeadroom(int reserve) {
+        return breaker.state().equals("CLOSED") && bulkhead.availablePermits() > reserve;
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("calls", calls.sum());
+        stats.put("inFlight", maxConcurrent - bulkhead.availablePermits());
+        stats.put("failures", failures.sum());
+        stats.put("timeouts", timeouts.sum());
+        stats.put("bulkheadWaited", bulkheadWaited.sum());
+        stats.put("bulkheadRejected", bulkheadRejected.sum());
+        stats.put("backgroundInFlight", backgroundMax - background.availablePermits());
+        stats.put("backgroundRejected", backgroundRejected.sum());
+        stats.put("breakerRejected", breakerRejected.sum());
+        stats.put("breaker", breaker.state());
+        stats.put("hedges", hedges.sum());
+        stats.put("latencyMs", latency.snapshot());
+        return stats;
+    }
+
+    /** Consecutive-failure breaker: CLOSED -> OPEN for openMs -> HALF_OPEN (one probe) -> CLOSED. */
+    private static final class CircuitBreaker {
+        private final int failureThreshold;
+        private final long openNanos;
+        private int consecutiveFailures;
+        private long openedAt;
+        private String state = "CLOSED";
+        private boolean probing;
+
+        CircuitBreaker(int failureThreshold, long openMs) {
+            this.failureThreshold = failureThreshold;
+            this.openNanos = openMs * 1_000_000L;
+        }
+
+        synchronized boolean allow() {
+            if ("OPEN".equals(state)) {
+                if (System.nanoTime() - openedAt < openNanos) return false;
+                state = "HALF_OPEN";
+                probing = false;
+            }
+            if ("HALF_OPEN".equals(state)) {
+                if (probing) return false;
+                probing = true;
+            }
+            return true;
+        }
+
+        synchronized void onSuccess() {
+            consecutiveFailures = 0;
+            state = "CLOSED";
+            probing = false;
+        }
+
+        synchronized void onFailure() {
+            consecutiveFailures++;
+            if ("HALF_OPEN".equals(state) || consecutiveFailures >= failureThreshold) {
+                state = "OPEN";
+                openedAt = System.nanoTime();
+                probing = false;
+            }
+        }
+
+        /** A call that never got an answer (the losing hedge, a bulkhead rejection) proves nothing either way. */
+        synchronized void onAbandoned() {
+            probing = false;
+        }
+
+        synchronized String state() {
+            return state;
+        }
+    }
+
+    /** Fixed millisecond buckets; percentiles resolve to the bucket's upper bound. */
+    private static final class LatencyHistogram {
+        private static final long[] BOUNDS_MS = {5, 10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000, Long.MAX_VALUE};
+        private final LongAdder[] counts = new LongAdder[BOUNDS_MS.length];
+
+        LatencyHistogram() {
+            for (int i = 0; i < counts.length; i++) counts[i] = new LongAdder();
+        }
+
+        void record(long nanos) {
+            long ms = nanos / 1_000_000L;
+            int i = 0;
+            while (ms > BOUNDS_MS[i]) i++;
+            counts[i].increment();
+        }
+
+        /** -1 until {@code minSamples} calls have been recorded. */
+        long percentileMillis(double p, int minSamples) {
+            long[] c = new long[counts.length];
+            long total = 0;
+            for (int i = 0; i < c.length; i++) total += (c[i] = counts[i].sum());
+            if (total < minSamples) return -1;
+            long rank = (long) Math.ceil(p * total);
+            long seen = 0;
+            for (int i = 0; i < c.length; i++) {
+                seen += c[i];
+                if (seen >= rank) return BOUNDS_MS[i];
+            }
+            return -1;
+        }
+
+        Map<String, Long> snapshot() {
+            Map<String, Long> out = new LinkedHashMap<>();
+            for (int i = 0; i < counts.length; i++) {
+                out.put(BOUNDS_MS[i] == Long.MAX_VALUE ? "+Inf" : "le" + BOUNDS_MS[i], counts[i].sum());
+            }
+            return out;
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.crypto.analysis.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.crypto.analysis.dto.CandleBlock;
+import com.crypto.analysis.dto.CandlePage;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Remembers the strong ETag of candle windows that were served entirely from closed, cached
+ * segments, together with the segment instances they were built from. While those instances are
+ * still in the {@link CandleCache} the window cannot have changed, so a matching If-None-Match
+ * can be answered without any upstream call or serialization.
+ */
+@Component
+public class CandleVersionTracker {
+
+    private final int maxWindows;
+    private final Map<WindowKey, Version> versions;
+
+    private final LongAdder recorded = new LongAdder();
+    private final LongAdder notModified = new LongAdder();
+    private final LongAdder stale = new LongAdder();
+
+    public CandleVersionTracker(@Value("${candles.versions.max-windows:8192}") int maxWindows) {
+        this.maxWindows = maxWindows;
+        this.versions = new LinkedHashMap<WindowKey, Version>(256, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<WindowKey, Version> eldest) {
+                return size() > CandleVersionTracker.this.maxWindows;
+            }
+        };
+    }
+
+    /** Strong validator over the page content and paging fields of one representation. */
+    public static String eTag(CandlePage page, String variant) {
+        CandleBlock c = page.getContent();
+        long h = 0xcbf29ce484222325L;
+        h = mix(h, page.getPageNumber());
+        h = mix(h, page.getPageSize());
+        h = mix(h, page.getTotalElements());
+        h = mix(h, page.getTotalPages());
+        for (int i = 0; i < c.size(); i++) {
+            h = mix(h, c.time(i));
+            h = mix(h, Double.doubleToLongBits(c.open(i)));
+            h = mix(h, Double.doubleToLongBits(c.high(i)));
+            h = mix(h, Double.doubleToLongBits(c.low(i)));
+            h = mix(h, Double.doubleToLongBits(c.close(i)));
+            h = mix(h, Double.doubleToLongBits(c.volume(i)));
+        }
+        if (page.getIndicators() != null) {
+            for (Map.Entry<String, Double[]> e : page.getIndicators().entrySet()) {
+                h = mix(h, e.getKey().hashCode());
+                for (Double v : e.getValue()) h = mix(h, v == null ? 0x7ff8000000000001L : Double.doubleToLongBits(v));
+            }
+        }
+        return "\"" + Long.toHexString(h) + "-" + c.size() + "-" + variant + "\"";
+    }
+
+    public void record(WindowKey key, String eTag, List<CandleCache.Segment> segments) {
+        synchronized (versions) {
+            versions.put(key, new Version(eTag, segments));
+        }
+        recorded.increment();
+    }
+
+    /**
+     * The recorded ETag of the window when {@code ifNoneMatch} names it and {@code current} are
+     * still the very segments it was built from, otherwise {@code null}.
+     */
+    public String notModified(WindowKey key, String ifNoneMatch, List<CandleCache.Segment> current) {
+        Version v;
+        synchronized (versions) {
+            v = versions.get(key);
+        }
+        if (v == null || !matches(ifNoneMatch, v.getETag())) return null;
+        if (current == null || current.size() != v.getSegments().size()) {
+            stale.increment();
+            return null;
+        }
+        for (int i = 0; i < current.size(); i++) {
+            if (current.get(i) != v.getSegments().get(i)) {
+                stale.increment();
+                return null;
+            }
+        }
+        notModified.increment();
+        return v.getETag();
+    }
+
+    public static boolean matches(String ifNoneMatch, String eTag) {
+        if (ifNoneMatch == null) return false;
+        for (String candidate : ifNoneMatch.split(",")) {
+            String t = candidate.trim();
+            if (t.startsWith("W/")) t = t.substring(2);
+            if (t.equals(eTag) || t.equals("*")) return true;
+        }
+        return false;
+    }
+
+    public Map<String, Object> stats() {
+        int size;
+        synchronized (versions) {
+            size = versions.size();
+        }
+        return Map.of(
+            "windows", size,
+            "recorded", recorded.sum(),
+            "notModified", notModified.sum(),
+            "stale", stale.sum()
+        );
+    }
+
+    private static long mix(long h, long v) {
+        h ^= v;
+        h *= 0x100000001b3L;
+        return h ^ (h >>> 29);
+    }
+
+    /** Everything that decides the content of a served page. */
+    @lombok.Value
+    public static class WindowKey {
+        String symbol;
+        String gap;
+        long fromMs;
+        long toMs;
+        int page;
+        int size;
+        boolean asc;
+        String downsample;
+        Integer targetPoints;
+        String transform;
+        List<String> indicators;
+        String variant;
+    }
+
+    @lombok.Value
+    private static class Version {
+        String eTag;
+        List<CandleCache.Segment> segments;
+    }
+}
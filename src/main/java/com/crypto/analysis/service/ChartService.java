@@ -2,42 +2,754 @@ package com.crypto.analysis.service;
 
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.core.ParameterizedTypeReference;
-import org.springframework.http.*;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.web.server.ResponseStatusException;
 
+import com.crypto.analysis.dto.AlignedReqDTO;
+import com.crypto.analysis.dto.AlignedSeries;
+import com.crypto.analysis.dto.CandleBatchResult;
+import com.crypto.analysis.dto.CandleBlock;
+import com.crypto.analysis.dto.CandleCursorPage;
+import com.crypto.analysis.dto.CandlePage;
 import com.crypto.analysis.dto.GraphDataReqDTO;
-import com.crypto.analysis.dto.OhlcPoint;
-import com.crypto.analysis.dto.PagedResponse;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 @Service
 @RequiredArgsConstructor
 public class ChartService {
 
-    private final RestTemplate restTemplate;
+    /** How many missing bucket segments of one window are fetched from upstream in parallel. */
+    private static final int SEGMENT_CONCURRENCY = 4;
+    private static final int DEFAULT_TARGET_POINTS = 800;
+    /**
+     * How many windows of one batch request are loaded at the same time. Times
+     * {@link #SEGMENT_CONCURRENCY} this stays below the default upstream bulkhead (16), so one
+     * cold batch cannot take every permit; several batches queue in the gateway.
+     */
+    private static final int BATCH_CONCURRENCY = 3;
+    public static final int MAX_BATCH = 50;
+    /** A delta never reaches back further than this; older clients reload the window instead. */
+    private static final int MAX_DELTA_BARS = CandleCache.BARS_PER_SEGMENT;
+    public static final int MAX_CURSOR_LIMIT = 5000;
+    /**
+     * A cursor walk stops after this many empty segments in a row: going back it means history
+     * has ended, going forward the page ends there with a cursor to resume from.
+     */
+    private static final int MAX_EMPTY_SEGMENTS = 4;
+
+    private final CandleUpstreamGateway upstream;
     private final DownsampleDecider decider;
+    private final CandleCache candleCache;
+    private final RequestCoalescer coalescer;
+    private final CandleRollup candleRollup;
+    private final CandleDownsampler downsampler;
+    private final CandleVersionTracker versions;
+    private final CandleStaleStore staleStore;
+    private final CandleStore candleStore;
+    private final SeriesAligner aligner;
+    private final CandleTransforms transforms;
+    private final IndicatorEngine indicators;
+
+    /** How long after a bar's end upstream may still fold late trades into it. */
+    @Value("${candles.settle-ms:10000}")
+    private long settleMs;
+
+    /** How long after a tile's end it is still served with the short max-age instead of as immutable. */
+    @Value("${candles.tiles.immutable-after-ms:3600000}")
+    private long tileImmutableAfterMs;
+
+    /**
+     * Blocking variant, runs on the caller's thread through the pooled solrApiRestTemplate.
+     */
+    public CandlePage getCandles(GraphDataReqDTO req) {
+        return loadCandles(req, r -> coalesce(r, () -> CompletableFuture.completedFuture(upstream.fetch(r)))).block();
+    }
+
+    /**
+     * Non-blocking variant, upstream calls go through the reactive solrApiWebClient.
+     */
+    public Mono<CandlePage> getCandlesAsync(GraphDataReqDTO req) {
+        return loadCandles(req, r -> coalesce(r, () -> upstream.fetchAsync(r).toFuture()));
+    }
+
+    /**
+     * {@link #getCandlesAsync} for warming the cache: whatever is not cached yet is fetched on
+     * the gateway's background permits.
+     */
+    public Mono<CandlePage> prefetchAsync(GraphDataReqDTO req) {
+        return loadCandles(req, r -> coalesce(r, () -> upstream.fetchBackgroundAsync(r).toFuture()));
+    }
+
+    /**
+     * {@link #getCandlesAsync} with serve-stale: when a recent copy of the window is retained
+     * and the fresh load fails or takes longer than the soft timeout, the copy is returned.
+     * The fresh load keeps running and refreshes the copy for the next caller. Copies are kept
+     * per bar-aligned window, so a live chart asking up to "now" finds the copy of any earlier
+     * request that selected the same bars.
+     */
+    public Mono<CandleStaleStore.Served> serveCandlesAsync(GraphDataReqDTO req) {
+        if (req.getSymbol() == null || req.getFrom() == null || req.getTo() == null) {
+            return getCandlesAsync(req).map(CandleStaleStore.Served::fresh);
+        }
+        return Mono.defer(() -> {
+            CandleVersionTracker.WindowKey key = windowKey(barAligned(req), null);
+            CandleStaleStore.Entry stale = staleStore.get(key);
+            Mono<CandlePage> fresh = getCandlesAsync(req).doOnNext(page -> staleStore.put(key, page));
+            if (stale == null) {
+                return fresh.map(CandleStaleStore.Served::fresh);
+            }
+            // subscribed here, not by the caller, so a timeout below does not cancel the refresh
+            CompletableFuture<CandlePage> refresh = fresh.toFuture();
+            return Mono.fromFuture(refresh.thenApply(Function.identity()))
+                    .map(CandleStaleStore.Served::fresh)
+                    .timeout(staleStore.softTimeout(), Mono.fromSupplier(() -> staleStore.serve(stale)))
+                    .onErrorResume(e -> Mono.fromSupplier(() -> staleStore.serve(stale)));
+        });
+    }
+
+    /**
+     * Loads several windows concurrently (at most {@link #BATCH_CONCURRENCY} at a time) and
+     * answers them together in request order, so a dashboard waits for its slowest chart only.
+     */
+    public Mono<List<CandleBatchResult>> serveBatchAsync(List<GraphDataReqDTO> reqs) {
+        if (reqs.size() > MAX_BATCH) {
+            return Mono.error(new IllegalArgumentException("At most " + MAX_BATCH + " windows per batch"));
+        }
+        return Flux.fromIterable(reqs)
+                .flatMapSequential(req -> serveCandlesAsync(req)
+                                .map(served -> new CandleBatchResult(req.getSymbol(), req.getInterval(),
+                                        served.getPage(), null, served.isStale()))
+                                .onErrorResume(e -> Mono.just(new CandleBatchResult(req.getSymbol(), req.getInterval(),
+                                        null, e.getMessage() != null ? e.getMessage() : e.toString(), false))),
+                        BATCH_CONCURRENCY, 1)
+                .collectList();
+    }
+
+    /**
+     * Loads the windows like {@link #serveBatchAsync} (whole window, ascending) and returns one
+     * column per window, aligned on the union of their bar times.
+     */
+    public Mono<AlignedSeries> alignedAsync(AlignedReqDTO req) {
+        List<GraphDataReqDTO> windows = new ArrayList<>(req.getSeries().size());
+        for (GraphDataReqDTO r : req.getSeries()) windows.add(r.toBuilder().page(0).size(0).isAsc(true).build());
+        String field = req.getField() != null ? req.getField() : "close";
+        String fill = req.getFill() != null ? req.getFill() : SeriesAligner.PREVIOUS;
+
+        return serveBatchAsync(windows).map(results -> {
+            int k = results.size();
+            long[][] times = new long[k][];
+            double[][] values = new double[k][];
+            List<String> names = new ArrayList<>(k);
+            List<String> errors = new ArrayList<>(k);
+            for (int s = 0; s < k; s++) {
+                CandleBatchResult r = results.get(s);
+                CandleBlock c = r.getPage() != null ? r.getPage().getContent() : CandleBlock.EMPTY;
+                times[s] = new long[c.size()];
+                values[s] = new double[c.size()];
+                for (int i = 0; i < c.size(); i++) {
+                    times[s][i] = c.time(i);
+                    values[s][i] = field(c, i, field);
+                }
+                names.add(r.getSymbol() + " " + (r.getInterval() != null ? r.getInterval() : ""));
+                errors.add(r.getError());
+            }
+            return aligner.toDto(aligner.align(times, values, fill), names, errors);
+        });
+    }
+
+    private static double field(CandleBlock c, int i, String field) {
+        switch (field.toLowerCase()) {
+            case "open":   return c.open(i);
+            case "high":   return c.high(i);
+            case "low":    return c.low(i);
+            case "volume": return c.volume(i);
+            default:       return c.close(i);
+        }
+    }
+
+    /**
+     * Live refresh: the bar at {@code since} (it may still have moved) and every bar after it,
+     * up to now. Goes through the segment cache like {@link #getCandlesAsync}, so only the
+     * open tail is asked from upstream. Never reaches back more than {@link #MAX_DELTA_BARS}
+     * bars, see {@link #isDeltaTruncated}.
+     */
+    public Mono<CandlePage> getDeltaAsync(GraphDataReqDTO req) {
+        if (req.getSymbol() == null || req.getSince() == null) {
+            return Mono.error(new IllegalArgumentException("Delta needs symbol and since"));
+        }
+        GraphDataReqDTO delta = deltaRequest(req, Instant.now());
+        return loadCandles(delta, r -> coalesce(r, () -> upstream.fetchAsync(r).toFuture()));
+    }
+
+    /**
+     * Whether {@link #getDeltaAsync} leaves out bars after {@code since} because they are more
+     * than {@link #MAX_DELTA_BARS} bars old; such a client has to reload its whole window.
+     */
+    public boolean isDeltaTruncated(GraphDataReqDTO req) {
+        if (req.getSymbol() == null || req.getSince() == null) return false;
+        return deltaRequest(req, Instant.now()).getFrom().isAfter(req.getSince());
+    }
+
+    /** The window of a delta: from the bar at {@code since}, at most {@link #MAX_DELTA_BARS} bars, up to now. */
+    private GraphDataReqDTO deltaRequest(GraphDataReqDTO req, Instant now) {
+        GraphDataReqDTO delta = req.toBuilder()
+                .downsample(req.getInterval() != null ? req.getInterval() : "1h")
+                .from(req.getSince())
+                .to(now)
+                .targetPoints(null)
+                .transform(null)
+                .page(0)
+                .size(0)
+                .isAsc(true)
+                .build();
+        long gapMs = decider.gapMillis(decider.decideGap(delta, null));
+        long fromMs = Math.max(Math.floorDiv(req.getSince().toEpochMilli(), gapMs),
+                Math.floorDiv(now.toEpochMilli(), gapMs) - MAX_DELTA_BARS + 1) * gapMs;
+        delta.setFrom(Instant.ofEpochMilli(fromMs));
+        return delta;
+    }
+
+    /**
+     * Keyset paging: up to {@code limit} bars strictly before (older) or after (newer) the
+     * position in {@code cursor}, read segment by segment from that position. Nothing is counted
+     * or skipped, so a page deep in history costs the same as the first one. Without a cursor,
+     * older pages start at {@code to} (default now) and newer pages at {@code from}. A newer page
+     * that runs into a stretch of empty segments comes back short, with a cursor past the stretch.
+     */
+    public Mono<CandleCursorPage> cursorAsync(GraphDataReqDTO req) {
+        if (req.getSymbol() == null) {
+            return Mono.error(new IllegalArgumentException("Cursor paging needs a symbol"));
+        }
+        String symbol = req.getSymbol().toUpperCase();
+        String gap = decider.mapIntervalToGap(req.getInterval() != null ? req.getInterval() : "1h");
+        long gapMs = decider.gapMillis(gap);
+        int limit = req.getLimit() > 0 ? Math.min(req.getLimit(), MAX_CURSOR_LIMIT) : CandleCache.BARS_PER_SEGMENT;
+
+        boolean older;
+        long bound;
+        if (req.getCursor() != null && !req.getCursor().isEmpty()) {
+            String[] c = decodeCursor(req.getCursor());
+            if (!c[0].equals(symbol) || !c[1].equals(gap)) {
+                return Mono.error(new IllegalArgumentException("Cursor belongs to another series"));
+            }
+            older = "older".equals(c[3]);
+            bound = Long.parseLong(c[2]);
+        } else {
+            older = !"newer".equalsIgnoreCase(req.getDirection());
+            if (older) {
+                bound = (req.getTo() != null ? req.getTo().toEpochMilli() : System.currentTimeMillis()) + 1;
+            } else if (req.getFrom() != null) {
+                bound = req.getFrom().toEpochMilli() - 1;
+            } else {
+                return Mono.error(new IllegalArgumentException("Newer pages without a cursor need from"));
+            }
+        }
+
+        GraphDataReqDTO base = GraphDataReqDTO.builder()
+                .symbol(symbol)
+                .interval(decider.gapToInterval(gap))
+                .downsample(decider.gapToInterval(gap))
+                .isAsc(true)
+                .build();
+        long spanMs = gapMs * CandleCache.BARS_PER_SEGMENT;
+        long startBucket = Math.floorDiv(older ? bound - 1 : bound + 1, spanMs);
+        Function<GraphDataReqDTO, Mono<CandlePage>> fetcher = r -> coalesce(r, () -> upstream.fetchAsync(r).toFuture());
+        // per subscription: the walk below accumulates into these
+        return Mono.defer(() -> {
+            List<CandleBlock> chunks = new ArrayList<>();
+            int[] taken = new int[1];
+            int[] emptyRun = new int[1];
+            long[] scannedTo = { Long.MIN_VALUE };
+
+            return Mono.just(startBucket)
+                    .expand(bucket -> {
+                        long segStart = bucket * spanMs;
+                        long segEnd = segStart + spanMs;
+                        long toMs = older ? Math.min(segEnd, bound) - 1 : Math.min(segEnd - 1, System.currentTimeMillis());
+                        return segment(base, gap, gapMs, bucket, toMs, fetcher).flatMap(seg -> {
+                            CandleBlock chunk;
+                            if (older) {
+                                int end = seg.lowerBound(bound);
+                                chunk = seg.slice(Math.max(0, end - (limit - taken[0])), end);
+                            } else {
+                                int start = seg.lowerBound(bound + 1);
+                                chunk = seg.slice(start, Math.min(seg.size(), start + limit - taken[0]));
+                            }
+                            chunks.add(chunk);
+                            taken[0] += chunk.size();
+                            emptyRun[0] = chunk.isEmpty() ? emptyRun[0] + 1 : 0;
+                            scannedTo[0] = segEnd - 1;
+                            boolean more = taken[0] < limit && emptyRun[0] < MAX_EMPTY_SEGMENTS
+                                    && (older ? bucket > 0 : segEnd <= System.currentTimeMillis());
+                            return more ? Mono.just(older ? bucket - 1 : bucket + 1) : Mono.empty();
+                        });
+                    }, 1)
+                    .then(Mono.fromSupplier(() -> {
+                        CandleBlock.Builder page = new CandleBlock.Builder(taken[0]);
+                        for (int i = 0; i < chunks.size(); i++) {
+                            CandleBlock chunk = chunks.get(older ? chunks.size() - 1 - i : i);
+                            page.addAll(chunk, 0, chunk.size());
+                        }
+                        CandleBlock content = page.build();
+                        String next = null;
+                        if (content.size() == limit) {
+                            next = encodeCursor(symbol, gap, older ? content.firstTime() : content.lastTime(), older);
+                        } else if (!older && emptyRun[0] >= MAX_EMPTY_SEGMENTS && scannedTo[0] < System.currentTimeMillis()) {
+                            next = encodeCursor(symbol, gap, scannedTo[0], false);
+                        }
+                        return new CandleCursorPage(content, next);
+                    }));
+        });
+    }
+
+    private static String encodeCursor(String symbol, String gap, long boundMs, boolean older) {
+        String raw = symbol + "|" + gap + "|" + boundMs + "|" + (older ? "older" : "newer");
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /** symbol, gap, bound (epoch millis, exclusive) and direction of a cursor. */
+    private static String[] decodeCursor(String cursor) {
+        try {
+            String[] c = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|");
+            if (c.length != 4 || !(c[3].equals("older") || c[3].equals("newer"))) throw new IllegalArgumentException();
+            Long.parseLong(c[2]);
+            return c;
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+
+    /**
+     * One tile of the fixed candle grid: bucket segment {@code tile} of {@code interval}, i.e. the
+     * {@link CandleCache#BARS_PER_SEGMENT} bars starting at {@code tile * span}. A tile is closed
+     * once every bar in it is and {@code candles.tiles.immutable-after-ms} has passed since its
+     * end, which leaves room for late upstream corrections; closed tiles never change.
+     */
+    public Mono<Tile> tileAsync(String symbol, String interval, long tile) {
+        String gap = decider.mapIntervalToGap(interval);
+        if (!decider.gapToInterval(gap).equalsIgnoreCase(interval)) {
+            return Mono.error(new ResponseStatusException(HttpStatus.NOT_FOUND, "No tiles for interval " + interval));
+        }
+        long gapMs = decider.gapMillis(gap);
+        long spanMs = gapMs * CandleCache.BARS_PER_SEGMENT;
+        long tileStart = tile * spanMs;
+        long tileEnd = tileStart + spanMs;
+        if (tile < 0 || tileStart > System.currentTimeMillis()) {
+            return Mono.error(new ResponseStatusException(HttpStatus.NOT_FOUND, "Tile " + tile + " has not started"));
+        }
+        String sym = symbol.toUpperCase();
+        GraphDataReqDTO req = GraphDataReqDTO.builder()
+                .symbol(sym)
+                .interval(decider.gapToInterval(gap))
+                .downsample(decider.gapToInterval(gap))
+                .from(Instant.ofEpochMilli(tileStart))
+                .to(Instant.ofEpochMilli(tileEnd - 1))
+                .isAsc(true)
+                .build();
+        Function<GraphDataReqDTO, Mono<CandlePage>> fetcher = r -> coalesce(r, () -> upstream.fetchAsync(r).toFuture());
+        return segment(req, gap, gapMs, tile, tileEnd - 1, fetcher).map(bars -> {
+            CandleCache.Segment seg = candleCache.peek(new CandleCache.Key(sym, gap, tile));
+            boolean settled = System.currentTimeMillis() >= tileEnd + tileImmutableAfterMs;
+            return new Tile(page(bars, 0, 0), settled && seg != null && seg.getCoveredUntil() >= tileEnd);
+        });
+    }
+
+    /**
+     * Answers a revalidation from the cache alone: returns the current ETag when
+     * {@code ifNoneMatch} still names the window and its segments are unchanged, otherwise
+     * {@code null}. Never goes upstream.
+     */
+    public String notModifiedETag(GraphDataReqDTO req, String variant, String ifNoneMatch) {
+        if (ifNoneMatch == null || req.getSymbol() == null || req.getFrom() == null || req.getTo() == null) {
+            return null;
+        }
+        return versions.notModified(windowKey(req, variant), ifNoneMatch, sources(req));
+    }
+
+    /**
+     * Strong ETag of a served page. Fresh windows built only from closed cached segments are
+     * remembered so the next revalidation can skip {@link #getCandlesAsync}; a stale copy was not
+     * built from the current segments and is never remembered.
+     */
+    public String eTag(GraphDataReqDTO req, String variant, CandleStaleStore.Served served) {
+        String eTag = CandleVersionTracker.eTag(served.getPage(), variant);
+        if (!served.isStale() && req.getSymbol() != null && req.getFrom() != null && req.getTo() != null) {
+            List<CandleCache.Segment> segments = sources(req);
+            if (segments != null) versions.record(windowKey(req, variant), eTag, segments);
+        }
+        return eTag;
+    }
+
+    /**
+     * {@code req} with {@code from} and {@code to} moved to the first and last bar open times
+     * inside them. Both select exactly the same bars, so their pages are the same.
+     */
+    private GraphDataReqDTO barAligned(GraphDataReqDTO req) {
+        long gapMs = decider.gapMillis(decider.decideGap(req, req.getTargetPoints()));
+        long fromMs = -Math.floorDiv(-req.getFrom().toEpochMilli(), gapMs) * gapMs;
+        long toMs = Math.floorDiv(req.getTo().toEpochMilli(), gapMs) * gapMs;
+        return req.toBuilder().from(Instant.ofEpochMilli(fromMs)).to(Instant.ofEpochMilli(toMs)).build();
+    }
+
+    private CandleVersionTracker.WindowKey windowKey(GraphDataReqDTO req, String variant) {
+        return new CandleVersionTracker.WindowKey(
+                req.getSymbol().toUpperCase(),
+                decider.decideGap(req, req.getTargetPoints()),
+                req.getFrom().toEpochMilli(),
+                req.getTo().toEpochMilli(),
+                req.getPage(),
+                req.getSize(),
+                req.isAsc(),
+                CandleDownsampler.isReduction(req.getDownsample()) ? req.getDownsample().toLowerCase() : null,
+                req.getTargetPoints(),
+                req.getTransform() != null && !req.getTransform().isBlank() ? req.getTransform().trim() : null,
+                req.getIndicators() != null && !req.getIndicators().isEmpty() ? List.copyOf(req.getIndicators()) : null,
+                variant);
+    }
+
+    /**
+     * The cached segments of the window, or {@code null} unless every one of them is closed up
+     * to the end of the window (closed bars never change).
+     */
+    private List<CandleCache.Segment> closedSegments(GraphDataReqDTO req) {
+        String gap = decider.decideGap(req, req.getTargetPoints());
+        long gapMs = decider.gapMillis(gap);
+        long spanMs = gapMs * CandleCache.BARS_PER_SEGMENT;
+        long toMs = req.getTo().toEpochMilli();
+        long firstBucket = Math.floorDiv(req.getFrom().toEpochMilli(), spanMs);
+        long lastBucket = Math.floorDiv(toMs, spanMs);
+        String symbol = req.getSymbol().toUpperCase();
+
+        List<CandleCache.Segment> segments = new ArrayList<>((int) (lastBucket - firstBucket + 1));
+        for (long bucket = firstBucket; bucket <= lastBucket; bucket++) {
+            CandleCache.Segment seg = candleCache.peek(new CandleCache.Key(symbol, gap, bucket));
+            if (seg == null || seg.getCoveredUntil() < Math.min((bucket + 1) * spanMs, toMs + 1)) return null;
+            segments.add(seg);
+        }
+        return segments;
+    }
+
+    /**
+     * Identical upstream requests in flight at the same time share one call. Each subscriber gets
+     * its own dependent future so a cancelled subscriber cannot cancel the shared one.
+     */
+    private Mono<CandlePage> coalesce(GraphDataReqDTO req, Supplier<CompletableFuture<CandlePage>> call) {
+        return Mono.defer(() -> Mono.fromFuture(coalescer.execute(req, call).thenApply(Function.identity())));
+    }
+
+    /**
+     * Streams the whole {@code [from, to]} range (paging, transforms and indicators are ignored) one bucket
+     * segment at a time, so at most {@link #SEGMENT_CONCURRENCY} segments are held per request.
+     */
+    public Flux<CandleBlock> streamCandlesAsync(GraphDataReqDTO req) {
+        if (req.getSymbol() == null || req.getFrom() == null || req.getTo() == null) {
+            return Flux.error(new IllegalArgumentException("Streaming needs symbol, from and to"));
+        }
+        Function<GraphDataReqDTO, Mono<CandlePage>> fetcher = r -> coalesce(r, () -> upstream.fetchAsync(r).toFuture());
+        return window(req, !req.isAsc(), fetcher).filter(chunk -> !chunk.isEmpty());
+    }
+
+    /**
+     * Serves the requested window from cached bucket segments, going upstream only for
+     * missing segments and for the tail that is not closed yet.
+     */
+    private Mono<CandlePage> loadCandles(GraphDataReqDTO req, Function<GraphDataReqDTO, Mono<CandlePage>> fetcher) {
+        if (req.getSymbol() == null || req.getFrom() == null || req.getTo() == null) {
+            return fetcher.apply(req);
+        }
+        if (req.getIndicators() == null || req.getIndicators().isEmpty()) {
+            return loadPage(req, fetcher);
+        }
+        // after the page, so the warm-up load finds the window's segments already cached
+        return loadPage(req, fetcher).flatMap(page -> withIndicators(req, page, fetcher));
+    }
+
+    /**
+     * {@code page} with the requested indicators attached. They are computed on the bars of the
+     * window's gap (before any reduction or transform) and picked at the page's bar times.
+     */
+    private Mono<CandlePage> withIndicators(GraphDataReqDTO req, CandlePage page,
+                                            Function<GraphDataReqDTO, Mono<CandlePage>> fetcher) {
+        String symbol = req.getSymbol().toUpperCase();
+        String gap = decider.decideGap(req, req.getTargetPoints());
+        long gapMs = decider.gapMillis(gap);
+        long fromMs = req.getFrom().toEpochMilli();
+        int warmup = 0;
+        for (String spec : req.getIndicators()) {
+            warmup = Math.max(warmup, indicators.warmupBars(symbol, gap, gapMs, spec, fromMs));
+        }
+        GraphDataReqDTO history = req.toBuilder()
+                .from(Instant.ofEpochMilli(fromMs - warmup * gapMs))
+                .downsample(decider.gapToInterval(gap))
+                .transform(null)
+                .indicators(null)
+                .page(0)
+                .size(0)
+                .isAsc(true)
+                .build();
+
+        return window(history, false, fetcher)
+                .collect(CandleBlock.Builder::new, (all, chunk) -> all.addAll(chunk, 0, chunk.size()))
+                .map(all -> {
+                    CandleBlock bars = all.build();
+                    CandleBlock rows = page.getContent();
+                    long openBarStart = unsettledFrom(gapMs);
+                    Map<String, Double[]> out = new LinkedHashMap<>();
+                    for (String spec : req.getIndicators()) {
+                        String[] names = indicators.outputs(spec);
+                        double[][] values = indicators.compute(symbol, gap, gapMs, spec, bars, openBarStart);
+                        for (int o = 0; o < names.length; o++) {
+                            Double[] col = new Double[rows.size()];
+                            for (int i = 0; i < rows.size(); i++) {
+                                int at = bars.lowerBound(rows.time(i));
+                                double v = at < bars.size() && bars.time(at) == rows.time(i) ? values[o][at] : Double.NaN;
+                                col[i] = Double.isNaN(v) ? null : v;
+                            }
+                            out.put(names[o], col);
+                        }
+                    }
+                    return new CandlePage(page.getContent(), page.getPageNumber(), page.getPageSize(),
+                            page.getTotalElements(), page.getTotalPages(), out);
+                });
+    }
+
+    private Mono<CandlePage> loadPage(GraphDataReqDTO req, Function<GraphDataReqDTO, Mono<CandlePage>> fetcher) {
+        CandleTransforms.Pipeline pipeline = transforms.pipeline(req.getTransform());
+        if (pipeline != null) {
+            CandleVersionTracker.WindowKey key = windowKey(req.toBuilder().page(0).size(0).build(), null);
+            List<CandleCache.Segment> before = transformSources(req, pipeline);
+            CandleBlock kept = before != null ? transforms.cached(key, before) : null;
+            if (kept != null) return Mono.just(page(kept, req.getPage(), req.getSize()));
+
+            Mono<CandleBlock> other = pipeline.getRatioSymbol() == null ? Mono.just(CandleBlock.EMPTY)
+                    : ascendingWindow(ratioWindow(req, pipeline.getRatioSymbol()), fetcher);
+            return ascendingWindow(req, fetcher)
+                    .zipWith(other, (window, ratio) -> inOrder(transforms.apply(pipeline, reduce(window, req),
+                            pipeline.getRatioSymbol() != null ? ratio : null), req))
+                    .doOnNext(candles -> {
+                        List<CandleCache.Segment> sources = transformSources(req, pipeline);
+                        if (sources != null) transforms.keep(key, sources, candles);
+                    })
+                    .map(candles -> page(candles, req.getPage(), req.getSize()));
+        }
+        return ascendingWindow(req, fetcher)
+                .map(window -> page(inOrder(reduce(window, req), req), req.getPage(), req.getSize()));
+    }
+
+    /** The whole window oldest first, as reductions and transforms expect it. */
+    private Mono<CandleBlock> ascendingWindow(GraphDataReqDTO req, Function<GraphDataReqDTO, Mono<CandlePage>> fetcher) {
+        return window(req, false, fetcher)
+                .collect(CandleBlock.Builder::new, (window, chunk) -> window.addAll(chunk, 0, chunk.size()))
+                .map(CandleBlock.Builder::build);
+    }
+
+    private static CandleBlock inOrder(CandleBlock ascending, GraphDataReqDTO req) {
+        return req.isAsc() ? ascending : ascending.reversed();
+    }
+
+    /** The ratio series: the same window of {@code symbol}, unreduced, on the same bar gap. */
+    private GraphDataReqDTO ratioWindow(GraphDataReqDTO req, String symbol) {
+        return req.toBuilder()
+                .symbol(symbol)
+                .transform(null)
+                .indicators(null)
+                .downsample(decider.gapToInterval(decider.decideGap(req, req.getTargetPoints())))
+                .page(0)
+                .size(0)
+                .isAsc(true)
+                .build();
+    }
+
+    private List<CandleCache.Segment> sources(GraphDataReqDTO req) {
+        CandleTransforms.Pipeline pipeline = transforms.pipeline(req.getTransform());
+        return pipeline != null ? transformSources(req, pipeline) : closedSegments(req);
+    }
+
+    /**
+     * The closed cached segments a transformed window is built from (its own and, for a ratio,
+     * those of the other symbol), or {@code null} while any of them can still change.
+     */
+    private List<CandleCache.Segment> transformSources(GraphDataReqDTO req, CandleTransforms.Pipeline pipeline) {
+        List<CandleCache.Segment> own = closedSegments(req);
+        if (own == null || pipeline.getRatioSymbol() == null) return own;
+        List<CandleCache.Segment> ratio = closedSegments(ratioWindow(req, pipeline.getRatioSymbol()));
+        if (ratio == null) return null;
+        List<CandleCache.Segment> all = new ArrayList<>(own.size() + ratio.size());
+        all.addAll(own);
+        all.addAll(ratio);
+        return all;
+    }
+
+    /** {@code window} must be ascending. */
+    private CandleBlock reduce(CandleBlock window, GraphDataReqDTO req) {
+        if (!CandleDownsampler.isReduction(req.getDownsample())) return window;
+        int target = req.getTargetPoints() != null ? req.getTargetPoints() : DEFAULT_TARGET_POINTS;
+        return downsampler.reduce(window, req.getDownsample(), target);
+    }
+
+    /** The bucket segments covering the request, each clipped to {@code [from, to]}, in output order. */
+    private Flux<CandleBlock> window(GraphDataReqDTO req, boolean descending,
+                                     Function<GraphDataReqDTO, Mono<CandlePage>> fetcher) {
+        String gap = decider.decideGap(req, req.getTargetPoints());
+        long gapMs = decider.gapMillis(gap);
+        long spanMs = gapMs * CandleCache.BARS_PER_SEGMENT;
+        long fromMs = req.getFrom().toEpochMilli();
+        long toMs = req.getTo().toEpochMilli();
+        long firstBucket = Math.floorDiv(fromMs, spanMs);
+        long lastBucket = Math.floorDiv(toMs, spanMs);
+
+        return Flux.range(0, (int) (lastBucket - firstBucket + 1))
+                .flatMapSequential(i -> segment(req, gap, gapMs, descending ? lastBucket - i : firstBucket + i, toMs, fetcher)
+                                .map(seg -> {
+                                    CandleBlock chunk = seg.slice(seg.lowerBound(fromMs), seg.lowerBound(toMs + 1));
+                                    return descending ? chunk.reversed() : chunk;
+                                }),
+                        SEGMENT_CONCURRENCY, 1);
+    }
+
+    private Mono<CandleBlock> segment(GraphDataReqDTO req, String gap, long gapMs, long bucket, long toMs,
+                                      Function<GraphDataReqDTO, Mono<CandlePage>> fetcher) {
+        long spanMs = gapMs * CandleCache.BARS_PER_SEGMENT;
+        long segStart = bucket * spanMs;
+        long segEnd = segStart + spanMs;
+        long needUntil = Math.min(segEnd, toMs + 1);
 
-    @Value("${solrApi.baseUrl}")
-    private String solrApiBase;
+        CandleCache.Key key = new CandleCache.Key(req.getSymbol().toUpperCase(), gap, bucket);
+        CandleCache.Segment cached = candleCache.get(key, needUntil);
+        if (cached != null && cached.getCoveredUntil() >= needUntil) {
+            return Mono.just(cached.getCandles());
+        }
 
-    public PagedResponse<OhlcPoint> getCandles(GraphDataReqDTO req) {
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.APPLICATION_JSON);
-        HttpEntity<GraphDataReqDTO> entity = new HttpEntity<>(req, headers);
+        // complete segments persisted earlier, possibly before a restart
+        if (candleStore.mayContain(key.getSymbol(), gap, bucket)) {
+            return candleStore.readAsync(key.getSymbol(), gap, bucket)
+                    .doOnNext(stored -> candleCache.put(key, new CandleCache.Segment(stored, segEnd)))
+                    .switchIfEmpty(Mono.defer(() -> loadSegment(req, key, gapMs, needUntil, cached, fetcher)));
+        }
+        return loadSegment(req, key, gapMs, needUntil, cached, fetcher);
+    }
 
-        String url = solrApiBase + "/api/ohlc/getCandleGraphData"; // match your controller path
+    /**
+     * The segment from what is cached, what can be rolled up and, for the rest, upstream: the
+     * uncovered bars between the cached head and the rolled-up run, then the tail after it.
+     */
+    private Mono<CandleBlock> loadSegment(GraphDataReqDTO req, CandleCache.Key key, long gapMs, long needUntil,
+                                          CandleCache.Segment cached,
+                                          Function<GraphDataReqDTO, Mono<CandlePage>> fetcher) {
+        String gap = key.getGap();
+        long bucket = key.getBucket();
+        long segStart = bucket * gapMs * CandleCache.BARS_PER_SEGMENT;
+        long segEnd = segStart + gapMs * CandleCache.BARS_PER_SEGMENT;
+        long headUntil = cached == null ? segStart : cached.getCoveredUntil();
+        CandleBlock head = cached == null ? CandleBlock.EMPTY
+                : cached.getCandles().slice(0, cached.getCandles().lowerBound(headUntil));
 
-        ParameterizedTypeReference<PagedResponse<OhlcPoint>> type =
-                new ParameterizedTypeReference<PagedResponse<OhlcPoint>>() {};
+        // closed coarse bars can be derived from cached 1m bars instead of asking upstream
+        CandleRollup.Derived derived = candleRollup.derive(key.getSymbol(), gap, gapMs, headUntil, segEnd);
+        CandleBlock rolled = derived != null ? derived.getCandles() : CandleBlock.EMPTY;
+        long rolledFrom = derived != null ? derived.getCoveredFrom() : headUntil;
+        long rolledUntil = derived != null ? derived.getCoveredUntil() : headUntil;
+        boolean needTail = rolledUntil < needUntil;
 
-            ResponseEntity<PagedResponse<OhlcPoint>> resp =
-                restTemplate.exchange(url, HttpMethod.POST, entity, type);
+        Mono<CandleBlock> gapBars = rolledFrom > headUntil
+                ? fetchRange(req, gap, headUntil, rolledFrom, fetcher) : Mono.just(CandleBlock.EMPTY);
+        Mono<CandleBlock> tailBars = needTail
+                ? fetchRange(req, gap, rolledUntil, segEnd, fetcher) : Mono.just(CandleBlock.EMPTY);
+        // one after the other, so a segment never holds more than one upstream permit
+        return gapBars.flatMap(between -> tailBars.map(tail -> {
+            CandleBlock.Builder merged = new CandleBlock.Builder(CandleCache.BARS_PER_SEGMENT);
+            merged.addAll(head, 0, head.size());
+            merged.addAll(between, between.lowerBound(headUntil), between.lowerBound(rolledFrom));
+            merged.addAll(rolled, 0, rolled.size());
+            merged.addAll(tail, tail.lowerBound(rolledUntil), tail.lowerBound(segEnd));
+            CandleBlock candles = merged.build();
 
-            if (!resp.getStatusCode().is2xxSuccessful() || resp.getBody() == null) {
-                throw new RuntimeException("Solr app error: " + resp.getStatusCode());
+            // the open bar, and a just-closed one upstream may still correct, never count as covered
+            long covered = needTail ? Math.max(rolledUntil, Math.min(segEnd, unsettledFrom(gapMs))) : rolledUntil;
+            candleCache.put(key, new CandleCache.Segment(candles, covered));
+            if (covered >= segEnd) candleStore.appendAsync(key.getSymbol(), gap, bucket, candles);
+            return candles;
+        }));
+    }
+
+    /**
+     * Start of the oldest bar that can still change: the open bar, or the one before it while
+     * less than {@code candles.settle-ms} has passed since it closed.
+     */
+    private long unsettledFrom(long gapMs) {
+        return Math.floorDiv(System.currentTimeMillis() - settleMs, gapMs) * gapMs;
+    }
+
+    /**
+     * Upstream bars of {@code [fromMs, toMs)}, following upstream paging, sorted by time. The
+     * request carries only what the segment key names (symbol and gap), so bars cached for one
+     * client can be served to any other.
+     */
+    private Mono<CandleBlock> fetchRange(GraphDataReqDTO req, String gap, long fromMs, long toMs,
+                                         Function<GraphDataReqDTO, Mono<CandlePage>> fetcher) {
+        GraphDataReqDTO first = GraphDataReqDTO.builder()
+                .symbol(req.getSymbol().toUpperCase())
+                .interval(decider.gapToInterval(gap))
+                .from(Instant.ofEpochMilli(fromMs))
+                .to(Instant.ofEpochMilli(toMs - 1))
+                .downsample(decider.gapToInterval(gap))
+                .page(0)
+                .size(CandleCache.BARS_PER_SEGMENT)
+                .isAsc(true)
+                .build();
+
+        return fetcher.apply(first)
+                .expand(resp -> resp.getPageNumber() + 1 < resp.getTotalPages()
+                        ? fetcher.apply(first.toBuilder().page(resp.getPageNumber() + 1).build())
+                        : Mono.empty())
+                .map(CandlePage::getContent)
+                .collect(CandleBlock.Builder::new, (all, part) -> all.addAll(part, 0, part.size()))
+                .map(all -> sorted(all.build()));
+    }
+
+    private static CandleBlock sorted(CandleBlock block) {
+        for (int i = 1; i < block.size(); i++) {
+            if (block.time(i) < block.time(i - 1)) {
+                Integer[] order = new Integer[block.size()];
+                for (int j = 0; j < order.length; j++) order[j] = j;
+                Arrays.sort(order, (a, b) -> Long.compare(block.time(a), block.time(b)));
+                CandleBlock.Builder b = new CandleBlock.Builder(block.size());
+                for (int j : order) b.add(block, j);
+                return b.build();
             }
-            return resp.getBody();
+        }
+        return block;
+    }
+
+    private static CandlePage page(CandleBlock window, int page, int size) {
+        if (size <= 0) {
+            return new CandlePage(window, 0, window.size(), window.size(), 1);
+        }
+        int from = Math.min(window.size(), page * size);
+        int to = Math.min(window.size(), from + size);
+        int totalPages = (window.size() + size - 1) / size;
+        return new CandlePage(window.slice(from, to), page, size, window.size(), totalPages);
+    }
+
+    /** A tile as served by {@link #tileAsync}: its bars as one page, and whether it can still change. */
+    @lombok.Value
+    public static class Tile {
+        CandlePage page;
+        boolean closed;
     }
-    
-}
\ No newline at end of file
+}
@@ -13,7 +13,9 @@ public class DownsampleDecider {
         long bucketSec = Math.max(seconds / Math.max(1, desired), 60);
 
         String ds = req.getDownsample();
-        if (ds != null && !"auto".equalsIgnoreCase(ds)) return mapIntervalToGap(ds);
+        // reductions run on bars of the requested interval, see CandleDownsampler
+        if (CandleDownsampler.isReduction(ds) && req.getInterval() != null) return mapIntervalToGap(req.getInterval());
+        if (ds != null && !"auto".equalsIgnoreCase(ds) && !CandleDownsampler.isReduction(ds)) return mapIntervalToGap(ds);
 
         if (bucketSec <= 60)   return "+1MINUTES";
         if (bucketSec <= 300)  return "+5MINUTES";
@@ -24,7 +26,7 @@ public class DownsampleDecider {
         return "+7DAYS";
     }
 
-    private String mapIntervalToGap(String interval) {
+    public String mapIntervalToGap(String interval) {
         switch (interval) {
             case "1m":  return "+1MINUTES";
             case "5m":  return "+5MINUTES";
@@ -33,7 +35,35 @@ public class DownsampleDecider {
             case "6h":  return "+6HOURS";
             case "1d":
             case "1D":  return "+1DAYS";
+            case "1w":  return "+7DAYS";
             default:    return "+1HOURS";
         }
     }
+
+    /** Inverse of {@link #mapIntervalToGap}: "+1HOURS" -> "1h". */
+    public String gapToInterval(String gap) {
+        switch (gap) {
+            case "+1MINUTES":  return "1m";
+            case "+5MINUTES":  return "5m";
+            case "+15MINUTES": return "15m";
+            case "+1HOURS":    return "1h";
+            case "+6HOURS":    return "6h";
+            case "+1DAYS":     return "1d";
+            case "+7DAYS":     return "1w";
+            default:           return "1h";
+        }
+    }
+
+    /** Bar width of a Solr date-math gap such as "+15MINUTES", in milliseconds. */
+    public long gapMillis(String gap) {
+        int i = 1;
+        while (i < gap.length() && Character.isDigit(gap.charAt(i))) i++;
+        long n = Long.parseLong(gap.substring(1, i));
+        switch (gap.substring(i)) {
+            case "MINUTES": return n * 60_000L;
+            case "HOURS":   return n * 3_600_000L;
+            case "DAYS":    return n * 86_400_000L;
+            default: throw new IllegalArgumentException("Unsupported gap: " + gap);
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,89 @@
+package com.crypto.analysis.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import com.crypto.analysis.dto.GraphDataReqDTO;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * {@link CandleRing}s for the symbols on the dashboard's icon row and the configured intervals.
+ * Each ring is backfilled once at startup and then kept current by the topic's shared poller
+ * in {@link CandleTopicHub}, so reading the latest bars never waits on upstream. Backfills run
+ * one ring at a time, so startup adds at most one window's fan-out to the upstream bulkhead.
+ */
+@Component
+public class HotCandleRings {
+
+    private static final Logger logger = LoggerFactory.getLogger(HotCandleRings.class);
+
+    private final ChartService chartService;
+    private final CandleTopicHub hub;
+    private final DownsampleDecider decider;
+    private final Map<CandleTopicHub.Topic, CandleRing> rings = new LinkedHashMap<>();
+
+    public HotCandleRings(ChartService chartService,
+                          CandleTopicHub hub,
+                          DownsampleDecider decider,
+                          @Value("${candles.ring.symbols:BTC,ETH,SOL,XRP,BNB,SHIB}") String[] symbols,
+                          @Value("${candles.ring.intervals:1m,1h}") String[] intervals,
+                          @Value("${candles.ring.capacity:4096}") int capacity) {
+        this.chartService = chartService;
+        this.hub = hub;
+        this.decider = decider;
+        for (String symbol : symbols) {
+            for (String interval : intervals) {
+                rings.put(hub.topic(symbol.trim(), interval.trim()), new CandleRing(capacity));
+            }
+        }
+    }
+
+    /** The ring of a hot (symbol, interval), or {@code null}. */
+    public CandleRing ring(String symbol, String interval) {
+        return rings.get(hub.topic(symbol, interval));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        Flux.fromIterable(rings.entrySet())
+                .concatMap(e -> backfillThenFollow(e.getKey(), e.getValue()))
+                .subscribe();
+    }
+
+    private Mono<Void> backfillThenFollow(CandleTopicHub.Topic topic, CandleRing ring) {
+        long gapMs = decider.gapMillis(decider.mapIntervalToGap(topic.getInterval()));
+        Instant now = Instant.now();
+        GraphDataReqDTO req = GraphDataReqDTO.builder()
+                .symbol(topic.getSymbol())
+                .interval(topic.getInterval())
+                .downsample(topic.getInterval())
+                .from(now.minusMillis(gapMs * ring.capacity()))
+                .to(now)
+                .size(0)
+                .isAsc(true)
+                .build();
+        // live updates only start after the backfill, so the ring is always written in time order
+        return chartService.getCandlesAsync(req)
+                .doOnNext(page -> ring.upsert(page.getContent()))
+                .doOnError(e -> logger.warn("Backfill of {} failed, ring fills from live bars: {}", topic, e.toString()))
+                .onErrorResume(e -> Mono.empty())
+                .doFinally(s -> hub.listen(topic, ring::upsert))
+                .then();
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> sizes = new LinkedHashMap<>();
+        rings.forEach((t, r) -> sizes.put(t.getSymbol() + ":" + t.getInterval(), r.size()));
+        return sizes;
+    }
+}
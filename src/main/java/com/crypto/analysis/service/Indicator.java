@@ -0,0 +1,276 @@
+package com.crypto.analysis.service;
+
+import com.crypto.analysis.dto.CandleBlock;
+
+/**
+ * Rolling state of one technical indicator over consecutive bars. {@link #update} folds in the
+ * next bar in O(1) and writes the indicator's outputs for it (NaN until enough bars were seen);
+ * {@link #copy} lets the still-open bar be evaluated without committing it.
+ * <p>
+ * Specs: {@code sma:N}, {@code ema:N}, {@code rsi:N}, {@code bb:N[:K]} (Bollinger bands of N
+ * bars, K standard deviations, outputs mid/upper/lower) and {@code vwap} (reset each UTC day).
+ */
+abstract class Indicator {
+
+    private static final long DAY_MS = 86_400_000L;
+    private static final int MAX_PERIOD = 5000;
+
+    /** Output names, one per value written by {@link #update}. */
+    abstract String[] outputs();
+
+    /** Bars to feed before the first bar whose value is wanted. */
+    abstract int warmup(long gapMs);
+
+    abstract void update(CandleBlock bars, int i, double[] out);
+
+    abstract Indicator copy();
+
+    /** Parses a spec such as {@code "ema:50"}. */
+    static Indicator parse(String spec) {
+        String[] p = spec.trim().toLowerCase().split(":");
+        switch (p[0]) {
+            case "sma":  return new Sma(period(p));
+            case "ema":  return new Ema(period(p));
+            case "rsi":  return new Rsi(period(p));
+            case "bb":   return new Bollinger(period(p), p.length > 2 ? number(p[2]) : 2.0);
+            case "vwap": return new Vwap();
+            default:     throw new IllegalArgumentException("Unknown indicator: " + spec);
+        }
+    }
+
+    /** {@code spec} in the form {@link #parse} accepts it back, e.g. {@code "bb:20:2"}. */
+    static String normalize(String spec) {
+        String[] outputs = parse(spec).outputs();
+        String first = outputs[0];
+        return outputs.length == 1 ? first : first.substring(0, first.lastIndexOf('.'));
+    }
+
+    private static int period(String[] p) {
+        if (p.length < 2) throw new IllegalArgumentException(p[0] + " needs a period, e.g. " + p[0] + ":20");
+        int n = (int) number(p[1]);
+        if (n < 1 || n > MAX_PERIOD) throw new IllegalArgumentException(p[0] + " period must be 1.." + MAX_PERIOD);
+        return n;
+    }
+
+    private static double number(String s) {
+        try {
+            return Double.parseDouble(s);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Not a number: " + s);
+        }
+    }
+
+    /** Fixed-size window of the last {@code n} closes with running sums. */
+    static final class Window {
+        final double[] ring;
+        int count;
+        int pos;
+        double sum;
+        double sumSq;
+
+        Window(int n) {
+            ring = new double[n];
+        }
+
+        Window(Window w) {
+            ring = w.ring.clone();
+            count = w.count;
+            pos = w.pos;
+            sum = w.sum;
+            sumSq = w.sumSq;
+        }
+
+        void push(double x) {
+            if (count == ring.length) {
+                double old = ring[pos];
+                sum -= old;
+                sumSq -= old * old;
+            } else {
+                count++;
+            }
+            ring[pos] = x;
+            sum += x;
+            sumSq += x * x;
+            pos = (pos + 1) % ring.length;
+        }
+
+        boolean full() {
+            return count == ring.length;
+        }
+    }
+
+    static final class Sma extends Indicator {
+        private final Window w;
+
+        Sma(int n) {
+            w = new Window(n);
+        }
+
+        private Sma(Sma o) {
+            w = new Window(o.w);
+        }
+
+        String[] outputs()      { return new String[] { "sma:" + w.ring.length }; }
+        int warmup(long gapMs)  { return w.ring.length - 1; }
+        Indicator copy()        { return new Sma(this); }
+
+        void update(CandleBlock bars, int i, double[] out) {
+            w.push(bars.close(i));
+            out[0] = w.full() ? w.sum / w.ring.length : Double.NaN;
+        }
+    }
+
+    /** Seeded with the SMA of the first N closes. */
+    static final class Ema extends Indicator {
+        private final int n;
+        private final double alpha;
+        private int seen;
+        private double value;
+
+        Ema(int n) {
+            this.n = n;
+            this.alpha = 2.0 / (n + 1);
+        }
+
+        String[] outputs()      { return new String[] { "ema:" + n }; }
+        int warmup(long gapMs)  { return 4 * n; }
+
+        Indicator copy() {
+            Ema e = new Ema(n);
+            e.seen = seen;
+            e.value = value;
+            return e;
+        }
+
+        void update(CandleBlock bars, int i, double[] out) {
+            double c = bars.close(i);
+            if (seen < n) {
+                value += c / n;
+                seen++;
+                out[0] = seen == n ? value : Double.NaN;
+                return;
+            }
+            value += alpha * (c - value);
+            out[0] = value;
+        }
+    }
+
+    /** Wilder's smoothing of gains and losses. */
+    static final class Rsi extends Indicator {
+        private final int n;
+        private double prevClose = Double.NaN;
+        private int changes;
+        private double avgGain;
+        private double avgLoss;
+
+        Rsi(int n) {
+            this.n = n;
+        }
+
+        String[] outputs()      { return new String[] { "rsi:" + n }; }
+        int warmup(long gapMs)  { return 4 * n; }
+
+        Indicator copy() {
+            Rsi r = new Rsi(n);
+            r.prevClose = prevClose;
+            r.changes = changes;
+            r.avgGain = avgGain;
+            r.avgLoss = avgLoss;
+            return r;
+        }
+
+        void update(CandleBlock bars, int i, double[] out) {
+            double c = bars.close(i);
+            if (Double.isNaN(prevClose)) {
+                prevClose = c;
+                out[0] = Double.NaN;
+                return;
+            }
+            double change = c - prevClose;
+            prevClose = c;
+            double gain = Math.max(change, 0);
+            double loss = Math.max(-change, 0);
+            if (changes < n) {
+                avgGain += gain / n;
+                avgLoss += loss / n;
+                if (++changes < n) {
+                    out[0] = Double.NaN;
+                    return;
+                }
+            } else {
+                avgGain = (avgGain * (n - 1) + gain) / n;
+                avgLoss = (avgLoss * (n - 1) + loss) / n;
+            }
+            out[0] = avgLoss == 0 ? (avgGain == 0 ? 50 : 100) : 100 - 100 / (1 + avgGain / avgLoss);
+        }
+    }
+
+    /** Population standard deviation over the window. */
+    static final class Bollinger extends Indicator {
+        private final Window w;
+        private final double k;
+
+        Bollinger(int n, double k) {
+            this.w = new Window(n);
+            this.k = k;
+        }
+
+        private Bollinger(Bollinger o) {
+            this.w = new Window(o.w);
+            this.k = o.k;
+        }
+
+        String[] outputs() {
+            String name = "bb:" + w.ring.length + ":" + (k == Math.rint(k) ? Long.toString((long) k) : Double.toString(k));
+            return new String[] { name + ".mid", name + ".upper", name + ".lower" };
+        }
+
+        int warmup(long gapMs)  { return w.ring.length - 1; }
+        Indicator copy()        { return new Bollinger(this); }
+
+        void update(CandleBlock bars, int i, double[] out) {
+            w.push(bars.close(i));
+            if (!w.full()) {
+                out[0] = out[1] = out[2] = Double.NaN;
+                return;
+            }
+            int n = w.ring.length;
+            double mean = w.sum / n;
+            double sd = Math.sqrt(Math.max(0, w.sumSq / n - mean * mean));
+            out[0] = mean;
+            out[1] = mean + k * sd;
+            out[2] = mean - k * sd;
+        }
+    }
+
+    /** Volume-weighted typical price since 00:00 UTC of the bar's day. */
+    static final class Vwap extends Indicator {
+        private long day = Long.MIN_VALUE;
+        private double pv;
+        private double volume;
+
+        String[] outputs()      { return new String[] { "vwap" }; }
+        int warmup(long gapMs)  { return (int) Math.min(MAX_PERIOD, Math.max(0, DAY_MS / gapMs - 1)); }
+
+        Indicator copy() {
+            Vwap v = new Vwap();
+            v.day = day;
+            v.pv = pv;
+            v.volume = volume;
+            return v;
+        }
+
+        void update(CandleBlock bars, int i, double[] out) {
+            long d = Math.floorDiv(bars.time(i), DAY_MS);
+            if (d != day) {
+                day = d;
+                pv = 0;
+                volume = 0;
+            }
+            double typical = (bars.high(i) + bars.low(i) + bars.close(i)) / 3;
+            pv += typical * bars.volume(i);
+            volume += bars.volume(i);
+            out[0] = volume > 0 ? pv / volume : typical;
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package com.crypto.analysis.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.crypto.analysis.dto.CandleBlock;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Technical indicators over candle windows, with rolling state kept per
+ * (symbol, gap, indicator, params). The first request for a series backfills it in one pass over
+ * the window plus its warm-up bars; later requests read the values of bars already seen and fold
+ * in each newer closed bar in O(1). The still-open bar is evaluated on a copy of the state, so it
+ * is recomputed on every request until it closes. Windows that start before a kept series (history
+ * scrolling, prefetch) are computed on a throwaway state and leave the kept one alone.
+ */
+@Component
+public class IndicatorEngine {
+
+    private final int maxTracks;
+    private final int maxBarsPerTrack;
+    private final Map<Key, Track> tracks;
+
+    private final LongAdder backfills = new LongAdder();
+    private final LongAdder detached = new LongAdder();
+    private final LongAdder barsBackfilled = new LongAdder();
+    private final LongAdder barsUpdated = new LongAdder();
+    private final LongAdder barsRead = new LongAdder();
+
+    public IndicatorEngine(@Value("${candles.indicators.max-tracks:512}") int maxTracks,
+                           @Value("${candles.indicators.max-bars-per-track:100000}") int maxBarsPerTrack) {
+        this.maxTracks = maxTracks;
+        this.maxBarsPerTrack = maxBarsPerTrack;
+        this.tracks = new LinkedHashMap<Key, Track>(64, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Track> eldest) {
+                return size() > IndicatorEngine.this.maxTracks;
+            }
+        };
+    }
+
+    /** Output names of {@code spec}, e.g. {@code ["bb:20:2.mid", "bb:20:2.upper", "bb:20:2.lower"]}. */
+    public String[] outputs(String spec) {
+        return Indicator.parse(spec).outputs();
+    }
+
+    /**
+     * How many bars before {@code fromMs} have to be loaded so that {@link #compute} returns
+     * settled values from {@code fromMs} on: none when the series is already tracked from there.
+     */
+    public int warmupBars(String symbol, String gap, long gapMs, String spec, long fromMs) {
+        Track track;
+        synchronized (tracks) {
+            track = tracks.get(new Key(symbol, gap, Indicator.normalize(spec)));
+        }
+        if (track != null) {
+            synchronized (track) {
+                if (track.size > 0 && track.warmFrom <= fromMs && fromMs <= track.time[track.size - 1] + gapMs) return 0;
+            }
+        }
+        return Indicator.parse(spec).warmup(gapMs);
+    }
+
+    /**
+     * Values of {@code spec} for every bar of {@code bars} (ascending, consecutive bars of one
+     * gap), one array per output. Bars opened at or after {@code openBarStart} are still moving
+     * and never enter the kept state.
+     */
+    public double[][] compute(String symbol, String gap, long gapMs, String spec, CandleBlock bars, long openBarStart) {
+        Key key = new Key(symbol, gap, Indicator.normalize(spec));
+        int n = bars.size();
+        int closedEnd = bars.lowerBound(openBarStart);
+        Track track;
+        synchronized (tracks) {
+            track = tracks.get(key);
+            if (track == null || track.isBehind(bars, gapMs)) {
+                track = new Track(Indicator.parse(spec), gapMs);
+                tracks.put(key, track);
+                backfills.increment();
+            } else if (!track.continues(bars, gapMs)) {
+                track = new Track(Indicator.parse(spec), gapMs);
+                detached.increment();
+            }
+        }
+
+        Indicator probe = track.state;
+        double[][] out = new double[probe.outputs().length][n];
+        double[] bar = new double[out.length];
+        synchronized (track) {
+            int p = track.size > 0 && n > 0 ? Math.max(0, lowerBound(track.time, track.size, bars.time(0))) : 0;
+            boolean fresh = track.size == 0;
+            for (int i = 0; i < closedEnd; i++) {
+                long t = bars.time(i);
+                if (track.size > 0 && t <= track.time[track.size - 1]) {
+                    while (p < track.size && track.time[p] < t) p++;
+                    boolean hit = p < track.size && track.time[p] == t;
+                    for (int o = 0; o < out.length; o++) out[o][i] = hit ? track.values[o][p] : Double.NaN;
+                    barsRead.increment();
+                    continue;
+                }
+                track.state.update(bars, i, bar);
+                track.append(t, bar);
+                for (int o = 0; o < out.length; o++) out[o][i] = bar[o];
+                if (fresh) barsBackfilled.increment(); else barsUpdated.increment();
+            }
+            if (closedEnd < n) {
+                Indicator open = track.state.copy();
+                for (int i = closedEnd; i < n; i++) {
+                    open.update(bars, i, bar);
+                    for (int o = 0; o < out.length; o++) out[o][i] = bar[o];
+                }
+            }
+            track.trim(maxBarsPerTrack);
+        }
+        return out;
+    }
+
+    public Map<String, Object> stats() {
+        int size;
+        synchronized (tracks) {
+            size = tracks.size();
+        }
+        return Map.of(
+            "tracks", size,
+            "backfills", backfills.sum(),
+            "detached", detached.sum(),
+            "barsBackfilled", barsBackfilled.sum(),
+            "barsUpdated", barsUpdated.sum(),
+            "barsRead", barsRead.sum()
+        );
+    }
+
+    private static int lowerBound(long[] a, int size, long t) {
+        int lo = 0, hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (a[mid] < t) lo = mid + 1; else hi = mid;
+        }
+        return lo;
+    }
+
+    @lombok.Value
+    private static class Key {
+        String symbol;
+        String gap;
+        String spec;
+    }
+
+    /** Closed bars seen so far for one key, their values, and the state after the last of them. */
+    private static final class Track {
+        final Indicator state;
+        final long gapMs;
+        long warmFrom = Long.MAX_VALUE;   // values from here on had their full warm-up
+        long[] time = new long[256];
+        double[][] values;
+        int size;
+
+        Track(Indicator state, long gapMs) {
+            this.state = state;
+            this.gapMs = gapMs;
+            this.values = new double[state.outputs().length][256];
+        }
+
+        /**
+         * Whether {@code bars} can be served from this track: they start inside the warmed part
+         * and leave no hole after its last bar.
+         */
+        synchronized boolean continues(CandleBlock bars, long gapMs) {
+            if (size == 0 || bars.isEmpty()) return size > 0;
+            long first = bars.time(0);
+            return first >= time[0] && first <= time[size - 1] + gapMs;
+        }
+
+        /** Whether the track has nothing yet or {@code bars} start past a hole after its last bar. */
+        synchronized boolean isBehind(CandleBlock bars, long gapMs) {
+            return size == 0 || !bars.isEmpty() && bars.time(0) > time[size - 1] + gapMs;
+        }
+
+        void append(long t, double[] bar) {
+            if (size == 0) warmFrom = t + (long) state.warmup(gapMs) * gapMs;
+            if (size == time.length) {
+                time = Arrays.copyOf(time, size * 2);
+                for (int o = 0; o < values.length; o++) values[o] = Arrays.copyOf(values[o], size * 2);
+            }
+            time[size] = t;
+            for (int o = 0; o < values.length; o++) values[o][size] = bar[o];
+            size++;
+        }
+
+        /** Drops the oldest half once over {@code max} bars; the rolling state is unaffected. */
+        void trim(int max) {
+            if (size <= max) return;
+            int drop = size / 2;
+            System.arraycopy(time, drop, time, 0, size - drop);
+            for (double[] v : values) System.arraycopy(v, drop, v, 0, size - drop);
+            size -= drop;
+            warmFrom = Math.max(warmFrom, time[0]);
+        }
+    }
+}
@@ -0,0 +1,347 @@
+package com.crypto.analysis.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import com.crypto.analysis.domain.UserChartSettings;
+import com.crypto.analysis.dto.CandleBlock;
+import com.crypto.analysis.mail.service.EmailService;
+import com.crypto.analysis.repository.UserChartSettingsRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Watches users' saved chart lines (retracement levels from {@link UserChartSettings}, and any
+ * trend line handed to {@link #replace}) and mails the owner when a closed bar's close crosses
+ * one. Lines are kept per symbol in a {@link PriceIntervalIndex} of the price range each line
+ * spans over the current two-day epoch, so a new bar only looks at the lines between the previous
+ * close and its own close instead of every saved line. Each symbol follows its topic on the
+ * {@link CandleTopicHub} at {@code alerts.lines.interval} while it has lines; only the symbols
+ * in {@code alerts.symbols} are watched.
+ */
+@Component
+public class LineAlertEngine {
+
+    private static final Logger logger = LoggerFactory.getLogger(LineAlertEngine.class);
+
+    private static final long EPOCH_MS = 86_400_000L;
+    /** The levels ChartKit draws for a retracement, see calculateRetracements in ChartKit.js. */
+    private static final double[] LEVELS = { 0.10, 0.25, 0.33, 0.382, 0.5, 0.618, 0.666, 0.75 };
+    private static final String[] LEVEL_NAMES = { "10%", "25%", "33%", "38%", "50%", "62%", "66%", "75%" };
+
+    private final CandleTopicHub hub;
+    private final DownsampleDecider decider;
+    private final UserChartSettingsRepository settingsRepository;
+    private final EmailService emailService;
+    private final ObjectMapper objectMapper;
+    private final String interval;
+    private final long cooldownMs;
+    private final Set<String> supported;
+
+    private final Map<String, SymbolLines> symbols = new ConcurrentHashMap<>();
+
+    private final LongAdder bars = new LongAdder();
+    private final LongAdder rebuilds = new LongAdder();
+    private final LongAdder candidates = new LongAdder();
+    private final LongAdder crossings = new LongAdder();
+    private final LongAdder suppressed = new LongAdder();
+
+    public LineAlertEngine(CandleTopicHub hub,
+                           DownsampleDecider decider,
+                           UserChartSettingsRepository settingsRepository,
+                           EmailService emailService,
+                           ObjectMapper objectMapper,
+                           @Value("${alerts.lines.interval:1m}") String interval,
+                           @Value("${alerts.lines.cooldown-ms:3600000}") long cooldownMs,
+                           @Value("${alerts.symbols:BTC,ETH,SOL,XRP,BNB,SHIB}") String[] supported) {
+        this.hub = hub;
+        this.decider = decider;
+        this.settingsRepository = settingsRepository;
+        this.emailService = emailService;
+        this.objectMapper = objectMapper;
+        this.interval = interval;
+        this.cooldownMs = cooldownMs;
+        this.supported = ConcurrentHashMap.newKeySet();
+        for (String symbol : supported) this.supported.add(symbol.trim().toUpperCase());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        for (UserChartSettings settings : settingsRepository.findAll()) index(settings);
+    }
+
+    /** (Re)indexes the retracement levels of one saved chart. */
+    public void index(UserChartSettings settings) {
+        replace(settings.getUserName(), settings.getSymbol(), retracementLines(settings.getRetracements()));
+    }
+
+    public void remove(String userName, String symbol) {
+        replace(userName, symbol, List.of());
+    }
+
+    /**
+     * Sets the lines {@code userName} watches on {@code symbol}, replacing earlier ones. Lines on
+     * unsupported symbols are ignored; a symbol left without lines stops following its topic.
+     */
+    public void replace(String userName, String symbol, List<AlertLine> lines) {
+        String sym = symbol.toUpperCase();
+        if (!supported.contains(sym)) {
+            if (!lines.isEmpty()) logger.debug("Not watching lines on unsupported symbol {}", sym);
+            return;
+        }
+        synchronized (symbols) {
+            SymbolLines sl = symbols.get(sym);
+            if (sl == null) {
+                if (lines.isEmpty()) return;
+                CandleTopicHub.Topic topic = hub.topic(sym, interval);
+                sl = new SymbolLines(sym, topic, decider.gapMillis(decider.mapIntervalToGap(topic.getInterval())));
+                symbols.put(sym, sl);
+                hub.listen(topic, sl.listener);
+            }
+            sl.replace(userName, lines);
+            if (sl.count() == 0) {
+                symbols.remove(sym);
+                hub.unlisten(sl.topic, sl.listener);
+            }
+        }
+    }
+
+    public Map<String, Object> stats() {
+        int lines = 0;
+        for (SymbolLines sl : symbols.values()) lines += sl.count();
+        return Map.of(
+            "symbols", symbols.size(),
+            "lines", lines,
+            "bars", bars.sum(),
+            "rebuilds", rebuilds.sum(),
+            "candidates", candidates.sum(),
+            "crossings", crossings.sum(),
+            "suppressed", suppressed.sum()
+        );
+    }
+
+    /** Runs on the hub's poller: only closed bars newer than the last one seen are checked. */
+    private void onBars(SymbolLines sl, CandleBlock block) {
+        long now = System.currentTimeMillis();
+        List<Crossing> fired = new ArrayList<>();
+        synchronized (sl) {
+            for (int i = 0; i < block.size(); i++) {
+                long t = block.time(i);
+                boolean closed = i + 1 < block.size() || t + sl.gapMs <= now;
+                if (!closed || t <= sl.lastTime) continue;
+                if (!Double.isNaN(sl.lastClose)) sl.check(sl.lastTime, sl.lastClose, t, block.close(i), now, fired);
+                sl.lastTime = t;
+                sl.lastClose = block.close(i);
+                bars.increment();
+            }
+        }
+        for (Crossing c : fired) {
+            String direction = c.up ? "above" : "below";
+            emailService.sendAlert(c.owner,
+                    sl.symbol + " closed " + direction + " " + c.line.getLabel(),
+                    sl.symbol + " closed at " + c.close + " on " + Instant.ofEpochMilli(c.time)
+                            + ", " + direction + " your line \"" + c.line.getLabel() + "\" at "
+                            + c.line.valueAt(c.time) + ".");
+        }
+    }
+
+    /** Start, end and the intermediate levels of each visible retracement, from its start date on. */
+    private List<AlertLine> retracementLines(String json) {
+        if (json == null || json.isBlank()) return List.of();
+        List<AlertLine> lines = new ArrayList<>();
+        try {
+            for (JsonNode r : objectMapper.readTree(json)) {
+                if (r.path("hidden").asBoolean(false)) continue;
+                JsonNode p = r.has("params") ? r.get("params") : r;
+                if (!p.path("startPrice").isNumber() || !p.path("endPrice").isNumber()) continue;
+                double start = p.get("startPrice").asDouble();
+                double end = p.get("endPrice").asDouble();
+                long from = time(p.path("startDate"));
+                lines.add(AlertLine.level("Start " + start, from, start));
+                lines.add(AlertLine.level("End " + end, from, end));
+                for (int i = 0; i < LEVELS.length; i++) {
+                    double price = end - (end - start) * LEVELS[i];
+                    lines.add(AlertLine.level("Retracement " + LEVEL_NAMES[i] + " " + price, from, price));
+                }
+            }
+        } catch (Exception e) {
+            logger.warn("Skipping unreadable retracements: {}", e.toString());
+        }
+        return lines;
+    }
+
+    private static long time(JsonNode date) {
+        if (date.isNumber()) return date.asLong();
+        String s = date.asText("");
+        try {
+            return Instant.parse(s).toEpochMilli();
+        } catch (DateTimeParseException e) {
+            // not an instant, try the date forms the chart inputs produce
+        }
+        try {
+            return LocalDateTime.parse(s).toInstant(ZoneOffset.UTC).toEpochMilli();
+        } catch (DateTimeParseException e) {
+            // fall through
+        }
+        try {
+            return LocalDate.parse(s).atStartOfDay().toInstant(ZoneOffset.UTC).toEpochMilli();
+        } catch (DateTimeParseException e) {
+            return Long.MIN_VALUE;
+        }
+    }
+
+    /**
+     * A watched line through {@code (fromMs, fromPrice)} and {@code (toMs, toPrice)}, watched
+     * from {@code fromMs} to {@code toMs}, or on without end when {@code extended}. A level has
+     * both points at the same price.
+     */
+    @lombok.Value
+    public static class AlertLine {
+        String label;
+        long fromMs;
+        double fromPrice;
+        long toMs;
+        double toPrice;
+        boolean extended;
+
+        public static AlertLine level(String label, long fromMs, double price) {
+            return new AlertLine(label, fromMs, price, fromMs, price, true);
+        }
+
+        public double valueAt(long t) {
+            if (toMs == fromMs) return fromPrice;
+            return fromPrice + (toPrice - fromPrice) * (double) (t - fromMs) / (toMs - fromMs);
+        }
+
+        long until() {
+            return extended ? Long.MAX_VALUE : toMs;
+        }
+    }
+
+    private static final class Crossing {
+        final String owner;
+        final AlertLine line;
+        final long time;
+        final double close;
+        final boolean up;
+
+        Crossing(String owner, AlertLine line, long time, double close, boolean up) {
+            this.owner = owner;
+            this.line = line;
+            this.time = time;
+            this.close = close;
+            this.up = up;
+        }
+    }
+
+    /** All lines of one symbol, flattened for the index, plus the last closed bar seen. */
+    private final class SymbolLines {
+        final String symbol;
+        final CandleTopicHub.Topic topic;
+        final long gapMs;
+        final Consumer<CandleBlock> listener = block -> onBars(this, block);
+        final Map<String, List<AlertLine>> byOwner = new LinkedHashMap<>();
+
+        AlertLine[] lines = new AlertLine[0];
+        String[] owners = new String[0];
+        long[] lastFired = new long[0];
+        PriceIntervalIndex index;
+        long epochStart = Long.MIN_VALUE;
+        long epochEnd = Long.MIN_VALUE;
+        boolean dirty = true;
+
+        long lastTime = Long.MIN_VALUE;
+        double lastClose = Double.NaN;
+
+        SymbolLines(String symbol, CandleTopicHub.Topic topic, long gapMs) {
+            this.symbol = symbol;
+            this.topic = topic;
+            this.gapMs = gapMs;
+        }
+
+        synchronized int count() {
+            return lines.length;
+        }
+
+        synchronized void replace(String owner, List<AlertLine> ownerLines) {
+            if (ownerLines.isEmpty()) byOwner.remove(owner); else byOwner.put(owner, List.copyOf(ownerLines));
+            int n = 0;
+            for (List<AlertLine> l : byOwner.values()) n += l.size();
+            lines = new AlertLine[n];
+            owners = new String[n];
+            lastFired = new long[n];
+            Arrays.fill(lastFired, Long.MIN_VALUE);
+            int j = 0;
+            for (Map.Entry<String, List<AlertLine>> e : byOwner.entrySet()) {
+                for (AlertLine line : e.getValue()) {
+                    owners[j] = e.getKey();
+                    lines[j++] = line;
+                }
+            }
+            dirty = true;
+        }
+
+        /** Price range of every line over the epoch holding {@code [prevT, t]}. */
+        void rebuild(long prevT, long t) {
+            epochStart = Math.floorDiv(prevT, EPOCH_MS) * EPOCH_MS;
+            epochEnd = Math.max(epochStart + 2 * EPOCH_MS, t + 1);
+            double[] lo = new double[lines.length];
+            double[] hi = new double[lines.length];
+            int[] ids = new int[lines.length];
+            int n = 0;
+            for (int j = 0; j < lines.length; j++) {
+                AlertLine line = lines[j];
+                long a = Math.max(epochStart, line.getFromMs());
+                long b = Math.min(epochEnd, line.until());
+                if (a > b) continue;
+                double va = line.valueAt(a);
+                double vb = line.valueAt(b);
+                lo[n] = Math.min(va, vb);
+                hi[n] = Math.max(va, vb);
+                ids[n++] = j;
+            }
+            index = new PriceIntervalIndex(lo, hi, ids, n);
+            dirty = false;
+            rebuilds.increment();
+        }
+
+        void check(long prevT, double prevClose, long t, double close, long now, List<Crossing> fired) {
+            if (lines.length == 0) return;
+            if (dirty || prevT < epochStart || t >= epochEnd) rebuild(prevT, t);
+            index.query(Math.min(prevClose, close), Math.max(prevClose, close), j -> {
+                candidates.increment();
+                AlertLine line = lines[j];
+                if (prevT < line.getFromMs() || t > line.until()) return;
+                double before = Math.signum(prevClose - line.valueAt(prevT));
+                double after = Math.signum(close - line.valueAt(t));
+                if (before == 0 || after == before) return;
+                if (lastFired[j] != Long.MIN_VALUE && now - lastFired[j] < cooldownMs) {
+                    suppressed.increment();
+                    return;
+                }
+                lastFired[j] = now;
+                crossings.increment();
+                fired.add(new Crossing(owners[j], line, t, close, before < 0));
+            });
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package com.crypto.analysis.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import com.crypto.analysis.domain.PriceAlert;
+import com.crypto.analysis.dto.CandleBlock;
+import com.crypto.analysis.mail.service.EmailService;
+import com.crypto.analysis.repository.PriceAlertRepository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * CRUD for users' price alerts plus the watcher that fires them. Untriggered alerts are kept per
+ * symbol in a {@link PriceLevelIndex}; each symbol follows its {@link CandleTopicHub} topic while
+ * it has untriggered alerts, and every change of the latest close is checked against the index.
+ * Alerts can only be set on the symbols in {@code alerts.symbols}.
+ */
+@Service
+public class PriceAlertService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PriceAlertService.class);
+
+    private final PriceAlertRepository priceAlertRepository;
+    private final CandleTopicHub hub;
+    private final EmailService emailService;
+    private final String interval;
+    private final Set<String> supported;
+
+    private final Map<String, Watched> symbols = new ConcurrentHashMap<>();
+    private final Map<Long, PriceAlert> active = new ConcurrentHashMap<>();
+
+    private final LongAdder moves = new LongAdder();
+    private final LongAdder triggered = new LongAdder();
+
+    public PriceAlertService(PriceAlertRepository priceAlertRepository,
+                             CandleTopicHub hub,
+                             EmailService emailService,
+                             @Value("${alerts.price.interval:1m}") String interval,
+                             @Value("${alerts.symbols:BTC,ETH,SOL,XRP,BNB,SHIB}") String[] supported) {
+        this.priceAlertRepository = priceAlertRepository;
+        this.hub = hub;
+        this.emailService = emailService;
+        this.interval = interval;
+        this.supported = ConcurrentHashMap.newKeySet();
+        for (String symbol : supported) this.supported.add(symbol.trim().toUpperCase());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        for (PriceAlert alert : priceAlertRepository.findByTriggeredAtIsNull()) {
+            if (supported.contains(alert.getSymbol().toUpperCase())) {
+                watch(alert);
+            } else {
+                logger.warn("Not watching alert {} on unsupported symbol {}", alert.getId(), alert.getSymbol());
+            }
+        }
+    }
+
+    public List<PriceAlert> getAllForUser(String userName) {
+        return priceAlertRepository.findByUserName(userName);
+    }
+
+    public PriceAlert create(String userName, PriceAlert body) {
+        String direction = body.getDirection() == null ? "" : body.getDirection().toLowerCase();
+        if (body.getSymbol() == null || body.getSymbol().isBlank()) {
+            throw new IllegalArgumentException("symbol is required");
+        }
+        if (!supported.contains(body.getSymbol().trim().toUpperCase())) {
+            throw new IllegalArgumentException("Unsupported symbol: " + body.getSymbol());
+        }
+        if (!PriceAlert.ABOVE.equals(direction) && !PriceAlert.BELOW.equals(direction)) {
+            throw new IllegalArgumentException("direction must be above or below");
+        }
+        if (!(body.getPrice() > 0) || Double.isInfinite(body.getPrice())) {
+            throw new IllegalArgumentException("price must be a positive number");
+        }
+        PriceAlert saved = priceAlertRepository.save(PriceAlert.builder()
+                .userName(userName)
+                .symbol(body.getSymbol().trim().toUpperCase())
+                .direction(direction)
+                .price(body.getPrice())
+                .note(body.getNote())
+                .build());
+        watch(saved);
+        return saved;
+    }
+
+    /** Deletes one of the user's alerts; {@code false} when there is no such alert. */
+    public boolean delete(String userName, Long id) {
+        return priceAlertRepository.findByIdAndUserName(id, userName)
+                .map(alert -> {
+                    priceAlertRepository.delete(alert);
+                    unwatch(alert);
+                    return true;
+                })
+                .orElse(false);
+    }
+
+    public Map<String, Object> stats() {
+        return Map.of(
+            "symbols", symbols.size(),
+            "active", active.size(),
+            "moves", moves.sum(),
+            "triggered", triggered.sum()
+        );
+    }
+
+    private void watch(PriceAlert alert) {
+        String symbol = alert.getSymbol().toUpperCase();
+        synchronized (symbols) {
+            Watched w = symbols.get(symbol);
+            if (w == null) {
+                w = new Watched(symbol);
+                symbols.put(symbol, w);
+                hub.listen(w.topic, w.listener);
+            }
+            active.put(alert.getId(), alert);
+            w.levels.add(alert.getId(), PriceAlert.ABOVE.equals(alert.getDirection()), alert.getPrice());
+        }
+    }
+
+    private void unwatch(PriceAlert alert) {
+        synchronized (symbols) {
+            Watched w = symbols.get(alert.getSymbol().toUpperCase());
+            if (w != null) {
+                w.levels.remove(alert.getId(), PriceAlert.ABOVE.equals(alert.getDirection()), alert.getPrice());
+                releaseIfEmpty(w);
+            }
+            active.remove(alert.getId());
+        }
+    }
+
+    /** Stops following the symbol once it has no untriggered alerts left. */
+    private void releaseIfEmpty(Watched w) {
+        synchronized (symbols) {
+            if (w.levels.size() > 0 || symbols.get(w.symbol) != w) return;
+            symbols.remove(w.symbol);
+            hub.unlisten(w.topic, w.listener);
+        }
+    }
+
+    /**
+     * Runs on the hub's poller with the newest bars; the price is the latest close. Mails go out
+     * only once the crossed alerts are marked triggered; if that fails they go back into the
+     * index and the move is checked again on the next price.
+     */
+    private void onPrice(Watched w, CandleBlock block) {
+        if (block.isEmpty()) return;
+        double price = block.close(block.size() - 1);
+        double last;
+        long[] ids;
+        synchronized (w) {
+            last = w.lastPrice;
+            w.lastPrice = price;
+            if (Double.isNaN(last) || last == price) return;
+            moves.increment();
+            ids = w.levels.cross(last, price);
+        }
+        if (ids.length == 0) return;
+
+        List<Long> fired = new ArrayList<>(ids.length);
+        for (long id : ids) fired.add(id);
+        try {
+            priceAlertRepository.markTriggered(fired, LocalDateTime.now(), price);
+        } catch (RuntimeException e) {
+            logger.warn("Could not mark {} alerts of {} as triggered, retrying on the next price: {}",
+                    ids.length, w.symbol, e.toString());
+            synchronized (w) {
+                for (long id : ids) {
+                    PriceAlert alert = active.get(id);
+                    if (alert != null) w.levels.add(id, PriceAlert.ABOVE.equals(alert.getDirection()), alert.getPrice());
+                }
+                w.lastPrice = last;
+            }
+            return;
+        }
+        for (long id : ids) {
+            PriceAlert alert = active.remove(id);
+            if (alert == null) continue;
+            triggered.increment();
+            emailService.sendAlert(alert.getUserName(),
+                    w.symbol + " is " + alert.getDirection() + " " + alert.getPrice(),
+                    w.symbol + " traded at " + price + ", " + alert.getDirection() + " your alert at "
+                            + alert.getPrice() + (alert.getNote() != null ? " (" + alert.getNote() + ")" : "") + ".");
+        }
+        releaseIfEmpty(w);
+    }
+
+    private final class Watched {
+        final String symbol;
+        final CandleTopicHub.Topic topic;
+        final Consumer<CandleBlock> listener = block -> onPrice(this, block);
+        final PriceLevelIndex levels = new PriceLevelIndex();
+        double lastPrice = Double.NaN;
+
+        Watched(String symbol) {
+            this.symbol = symbol;
+            this.topic = hub.topic(symbol, interval);
+        }
+    }
+}
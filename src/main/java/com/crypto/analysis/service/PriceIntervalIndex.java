@@ -0,0 +1,72 @@
+package com.crypto.analysis.service;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Immutable stabbing index over price intervals {@code [lo, hi]}: the intervals sorted by
+ * {@code lo} with an implicit segment tree of the largest {@code hi} below each node.
+ * {@link #query} reports every interval overlapping a price range in O(log n + k).
+ */
+final class PriceIntervalIndex {
+
+    private final int size;
+    private final double[] lo;
+    private final double[] hi;
+    private final int[] ids;
+    private final double[] maxHi;    // segment tree over positions, 1-based
+
+    /** {@code lo[i]}, {@code hi[i]} belong to {@code ids[i]}; the arrays are not kept. */
+    PriceIntervalIndex(double[] lo, double[] hi, int[] ids, int size) {
+        Integer[] order = new Integer[size];
+        for (int i = 0; i < size; i++) order[i] = i;
+        Arrays.sort(order, (a, b) -> Double.compare(lo[a], lo[b]));
+
+        this.size = size;
+        this.lo = new double[size];
+        this.hi = new double[size];
+        this.ids = new int[size];
+        for (int i = 0; i < size; i++) {
+            this.lo[i] = lo[order[i]];
+            this.hi[i] = hi[order[i]];
+            this.ids[i] = ids[order[i]];
+        }
+        int leaves = 1;
+        while (leaves < Math.max(1, size)) leaves <<= 1;
+        this.maxHi = new double[2 * leaves];
+        Arrays.fill(maxHi, Double.NEGATIVE_INFINITY);
+        for (int i = 0; i < size; i++) maxHi[leaves + i] = this.hi[i];
+        for (int n = leaves - 1; n >= 1; n--) maxHi[n] = Math.max(maxHi[2 * n], maxHi[2 * n + 1]);
+    }
+
+    int size() {
+        return size;
+    }
+
+    /** Calls {@code hit} with the id of every interval that overlaps {@code [from, to]}. */
+    void query(double from, double to, IntConsumer hit) {
+        // only intervals starting at or below "to" can overlap
+        int limit = upperBound(to);
+        if (limit > 0) query(1, 0, maxHi.length / 2, limit, from, hit);
+    }
+
+    private void query(int node, int start, int end, int limit, double from, IntConsumer hit) {
+        if (start >= limit || maxHi[node] < from) return;
+        if (end - start == 1) {
+            hit.accept(ids[start]);
+            return;
+        }
+        int mid = (start + end) >>> 1;
+        query(2 * node, start, mid, limit, from, hit);
+        query(2 * node + 1, mid, end, limit, from, hit);
+    }
+
+    private int upperBound(double price) {
+        int a = 0, b = size;
+        while (a < b) {
+            int m = (a + b) >>> 1;
+            if (lo[m] <= price) a = m + 1; else b = m;
+        }
+        return a;
+    }
+}
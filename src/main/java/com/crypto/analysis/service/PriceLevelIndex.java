@@ -0,0 +1,93 @@
+package com.crypto.analysis.service;
+
+import java.util.Arrays;
+
+/**
+ * Price thresholds of one symbol in two sorted primitive arrays, one for "above" and one for
+ * "below" alerts. {@link #cross} finds the thresholds passed by a price move with two binary
+ * searches and removes them as one contiguous run, so a move costs O(log n + k).
+ */
+final class PriceLevelIndex {
+
+    private final Side above = new Side();
+    private final Side below = new Side();
+
+    synchronized void add(long id, boolean isAbove, double price) {
+        (isAbove ? above : below).insert(id, price);
+    }
+
+    synchronized boolean remove(long id, boolean isAbove, double price) {
+        return (isAbove ? above : below).remove(id, price);
+    }
+
+    synchronized int size() {
+        return above.size + below.size;
+    }
+
+    /**
+     * Ids of the alerts crossed when the price moves from {@code from} to {@code to}, taken out
+     * of the index: "above" thresholds in {@code (from, to]} on a rise, "below" thresholds in
+     * {@code [to, from)} on a fall.
+     */
+    synchronized long[] cross(double from, double to) {
+        if (to > from) return above.take(above.upperBound(from), above.upperBound(to));
+        if (to < from) return below.take(below.lowerBound(to), below.lowerBound(from));
+        return new long[0];
+    }
+
+    private static final class Side {
+        double[] prices = new double[16];
+        long[] ids = new long[16];
+        int size;
+
+        void insert(long id, double price) {
+            int at = upperBound(price);
+            if (size == prices.length) {
+                prices = Arrays.copyOf(prices, size * 2);
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            System.arraycopy(prices, at, prices, at + 1, size - at);
+            System.arraycopy(ids, at, ids, at + 1, size - at);
+            prices[at] = price;
+            ids[at] = id;
+            size++;
+        }
+
+        boolean remove(long id, double price) {
+            for (int i = lowerBound(price); i < size && prices[i] == price; i++) {
+                if (ids[i] == id) {
+                    take(i, i + 1);
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        long[] take(int from, int to) {
+            if (from >= to) return new long[0];
+            long[] out = Arrays.copyOfRange(ids, from, to);
+            System.arraycopy(prices, to, prices, from, size - to);
+            System.arraycopy(ids, to, ids, from, size - to);
+            size -= to - from;
+            return out;
+        }
+
+        int lowerBound(double price) {
+            int a = 0, b = size;
+            while (a < b) {
+                int m = (a + b) >>> 1;
+                if (prices[m] < price) a = m + 1; else b = m;
+            }
+            return a;
+        }
+
+        int upperBound(double price) {
+            int a = 0, b = size;
+            while (a < b) {
+                int m = (a + b) >>> 1;
+                if (prices[m] <= price) a = m + 1; else b = m;
+            }
+            return a;
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.crypto.analysis.service;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Single-flight: concurrent callers with an equal key share the future of the first caller
+ * (the leader) instead of issuing their own call. The entry is dropped as soon as the leader
+ * completes, so results are never served from here after the fact.
+ */
+@Component
+public class RequestCoalescer {
+
+    private final Map<Object, CompletableFuture<?>> inFlight = new ConcurrentHashMap<>();
+
+    private final LongAdder leaders = new LongAdder();
+    private final LongAdder collapsed = new LongAdder();
+
+    /**
+     * Runs {@code call} unless an equal key is already in flight. The supplier is invoked on the
+     * leader's thread, so a blocking call simply returns a completed future.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> CompletableFuture<T> execute(Object key, Supplier<CompletableFuture<T>> call) {
+        CompletableFuture<T> mine = new CompletableFuture<>();
+        CompletableFuture<?> existing = inFlight.putIfAbsent(key, mine);
+        if (existing != null) {
+            collapsed.increment();
+            return (CompletableFuture<T>) existing;
+        }
+        leaders.increment();
+        try {
+            call.get().whenComplete((value, error) -> {
+                inFlight.remove(key, mine);
+                if (error != null) mine.completeExceptionally(error);
+                else mine.complete(value);
+            });
+        } catch (RuntimeException e) {
+            inFlight.remove(key, mine);
+            mine.completeExceptionally(e);
+        }
+        return mine;
+    }
+
+    public Map<String, Object> stats() {
+        return Map.of(
+            "leaders", leaders.sum(),
+            "collapsed", collapsed.sum(),
+            "inFlight", inFlight.size()
+        );
+    }
+}
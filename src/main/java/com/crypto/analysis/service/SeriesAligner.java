@@ -0,0 +1,104 @@
+package com.crypto.analysis.service;
+
+import org.springframework.stereotype.Component;
+
+import com.crypto.analysis.dto.AlignedSeries;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Aligns several time series on the union of their timestamps with one linear merge-join over
+ * the sorted time arrays. Where a series has no point at a shared timestamp the gap is filled by
+ * policy:
+ * <ul>
+ *   <li>{@code previous}: the series' last known value (null before its first point);</li>
+ *   <li>{@code null}: left empty;</li>
+ *   <li>{@code interpolate}: linear in time between the neighbouring points (null outside them).</li>
+ * </ul>
+ */
+@Component
+public class SeriesAligner {
+
+    public static final String PREVIOUS = "previous";
+    public static final String NULL = "null";
+    public static final String INTERPOLATE = "interpolate";
+
+    /**
+     * {@code times[s]} must be ascending; of equal timestamps within one series the last wins.
+     * Missing values are NaN in the result.
+     */
+    public Result align(long[][] times, double[][] values, String fill) {
+        int k = times.length;
+        int total = 0;
+        for (long[] t : times) total += t.length;
+
+        long[] shared = new long[total];
+        double[][] out = new double[k][total];
+        int[] idx = new int[k];
+        double[] prev = new double[k];
+        long[] prevTime = new long[k];
+        Arrays.fill(prev, Double.NaN);
+
+        int n = 0;
+        while (true) {
+            long t = Long.MAX_VALUE;
+            for (int s = 0; s < k; s++) {
+                if (idx[s] < times[s].length) t = Math.min(t, times[s][idx[s]]);
+            }
+            if (t == Long.MAX_VALUE) break;
+
+            shared[n] = t;
+            for (int s = 0; s < k; s++) {
+                int i = idx[s];
+                if (i < times[s].length && times[s][i] == t) {
+                    while (i + 1 < times[s].length && times[s][i + 1] == t) i++;
+                    out[s][n] = values[s][i];
+                    prev[s] = values[s][i];
+                    prevTime[s] = t;
+                    idx[s] = i + 1;
+                } else {
+                    out[s][n] = fill(fill, prev[s], prevTime[s], t, times[s], values[s], i);
+                }
+            }
+            n++;
+        }
+
+        for (int s = 0; s < k; s++) out[s] = Arrays.copyOf(out[s], n);
+        return new Result(Arrays.copyOf(shared, n), out);
+    }
+
+    private static double fill(String fill, double prev, long prevTime, long t, long[] times, double[] values, int next) {
+        if (PREVIOUS.equalsIgnoreCase(fill)) return prev;
+        if (INTERPOLATE.equalsIgnoreCase(fill) && !Double.isNaN(prev) && next < times.length) {
+            double w = (double) (t - prevTime) / (times[next] - prevTime);
+            return prev + (values[next] - prev) * w;
+        }
+        return Double.NaN;
+    }
+
+    /** Boxes a result for JSON, NaN becoming null. */
+    public AlignedSeries toDto(Result r, List<String> names, List<String> errors) {
+        List<AlignedSeries.Column> columns = new ArrayList<>(r.values.length);
+        for (int s = 0; s < r.values.length; s++) {
+            Double[] boxed = new Double[r.time.length];
+            for (int i = 0; i < boxed.length; i++) {
+                double v = r.values[s][i];
+                boxed[i] = Double.isNaN(v) ? null : v;
+            }
+            columns.add(new AlignedSeries.Column(names.get(s), errors.get(s), boxed));
+        }
+        return new AlignedSeries(r.time, columns);
+    }
+
+    public static final class Result {
+        public final long[] time;
+        public final double[][] values;
+
+        Result(long[] time, double[][] values) {
+            this.time = time;
+            this.values = values;
+        }
+    }
+}
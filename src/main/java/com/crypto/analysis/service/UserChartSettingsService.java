@@ -20,6 +20,7 @@ import javax.transaction.Transactional;
 public class UserChartSettingsService {
 
     private final UserChartSettingsRepository userChartSettingsRepository;
+    private final LineAlertEngine lineAlerts;
     
     public List<UserChartSettings> getAllForUser(String userName) {
         return userChartSettingsRepository.findByUserName(userName);
@@ -43,7 +44,7 @@ public class UserChartSettingsService {
     	}
         String userName = auth.getName();
  
-        return userChartSettingsRepository.findByUserNameAndSymbol(userName, dto.getSymbol())
+        UserChartSettings saved = userChartSettingsRepository.findByUserNameAndSymbol(userName, dto.getSymbol())
                 .map(existing -> {
                     // Update existing record
                     existing.setInterval(dto.getInterval());
@@ -64,6 +65,8 @@ public class UserChartSettingsService {
                             .build();
                     return userChartSettingsRepository.save(newSettings);
                 });
+        lineAlerts.index(saved);
+        return saved;
     }
     @Transactional
     public void deleteChartForUser(String username, String symbol) {
@@ -74,6 +77,7 @@ public class UserChartSettingsService {
         
     	userChartSettingsRepository.findByUserNameAndSymbol(username, symbol)
                 .ifPresent(userChartSettingsRepository::delete);
+        lineAlerts.remove(username, symbol);
         
     }
 
@@ -5,7 +5,7 @@
  * - Multi-chart, multi-series
  * - Per-series type (candlestick, line, bar, area, etc.)
  * - Pass ANY ApexCharts options via `apex` (deep-merged)
- * - Optional Binance OHLC datasource with older prefetch
+ * - Optional Binance OHLC datasource (via the /api/binance proxy) with older prefetch
  * - Smart Y-range over mixed series
  * - Dark tooltips, white axes, axis tooltip date formatting
  * - OHLC pill (optional) for candlestick series
@@ -90,7 +90,7 @@
       this.interval = interval;
       this.pageSize = pageSize;
       this.cursorMs = null;
-      this._base = "https://api.binance.com/api/v3/klines";
+      this._base = "/api/binance/klines";
     }
 
     setInterval(interval) {
@@ -103,7 +103,7 @@
         ? this.cursorMs - 1
         : Date.now();
 
-      const url = new URL(this._base);
+      const url = new URL(this._base, global.location.origin);
       url.searchParams.set("symbol", this.symbol);
       url.searchParams.set("interval", this.interval);
       url.searchParams.set("limit", String(Math.max(1, Math.min(1000, limit))));
@@ -111,7 +111,7 @@
 
       let res;
       try {
-        res = await fetch(url.toString(), { mode: "cors" });
+        res = await fetch(url.toString());
       } catch (err) {
         throw new Error(`Binance fetch error: ${err?.message || err}`);
       }
@@ -3,7 +3,7 @@
  ****************************************************/
 (function(global) {
 	const { $, byId, deepMerge, fmtNum, formatForInterval } = global.ChartKitUtils;
-	const BinanceOHLCSource = global.BinanceOHLCSource;
+	const ChartDataSource = global.ChartDataSource;
 
 	// === Smart formatter for Volume Axis (K / M / B) ===
 	function fmtVolume(v) {
@@ -114,7 +114,7 @@
 			}));
 
 			this.selectedInterval =
-				cfg.series?.find((s) => s.dataSource instanceof BinanceOHLCSource)?.dataSource?.interval ||
+				cfg.series?.find((s) => s.dataSource instanceof ChartDataSource)?.dataSource?.interval ||
 				"1h";
 
 			this.apexOptions = this.makeDefaultApexOptions();
@@ -219,7 +219,7 @@
 		async changeTimeframe(tf) {
 			this.selectedInterval = tf;
 			this.seriesDefs.forEach((s) => {
-				if (s.dataSource instanceof BinanceOHLCSource) s.dataSource.setInterval(tf);
+				if (s.dataSource instanceof ChartDataSource) s.dataSource.setInterval?.(tf);
 			});
 			await this.reload();
 
@@ -405,7 +405,7 @@
 			try {
 				this.seriesDefs.forEach((s) => {
 					s.data = [];
-					if (s.dataSource instanceof BinanceOHLCSource) s.dataSource.cursorMs = null;
+					if (s.dataSource instanceof ChartDataSource) s.dataSource.cursorMs = null;
 				});
 				await this.fetchOnePageForAll();
 
@@ -0,0 +1,195 @@
+/****************************************************
+ * ChartKit ApiOHLCSource
+ * Pages candles from the /api/graph/tiles grid using the packed
+ * "application/x-candles" columns (see CandleBinaryHttpMessageConverter).
+ * Closed tiles are immutable, so most pans and zooms are HTTP cache hits.
+ ****************************************************/
+(function (global) {
+  const MEDIA_TYPE = "application/x-candles";
+  const HEADER_BYTES = 32;
+  /** Bars per tile, CandleCache.BARS_PER_SEGMENT on the server. */
+  const TILE_BARS = 500;
+
+  /** The intervals the tile endpoint serves (DownsampleDecider on the server). */
+  const INTERVAL_MS = {
+    "1m": 60e3, "5m": 300e3, "15m": 900e3,
+    "1h": 3600e3, "6h": 21600e3,
+    "1d": 86400e3, "1w": 604800e3,
+  };
+
+  /**
+   * Decodes the packed layout into typed-array views over the response buffer
+   * (no per-candle parsing).
+   */
+  function decodeCandles(buffer) {
+    const view = new DataView(buffer);
+    const magic = String.fromCharCode(
+      view.getUint8(0), view.getUint8(1), view.getUint8(2), view.getUint8(3)
+    );
+    if (magic !== "CNDL") throw new Error("Not a candle payload");
+    if (view.getUint8(4) !== 1) throw new Error(`Unsupported candle payload version ${view.getUint8(4)}`);
+
+    const hasVolume = (view.getUint8(5) & 1) === 1;
+    const count = view.getInt32(8, true);
+    const col = (i) => new Float64Array(buffer, HEADER_BYTES + i * count * 8, count);
+
+    return {
+      count,
+      pageNumber: view.getInt32(12, true),
+      pageSize: view.getInt32(16, true),
+      totalPages: view.getInt32(20, true),
+      totalElements: Number(view.getBigInt64(24, true)),
+      time: col(0),
+      open: col(1),
+      high: col(2),
+      low: col(3),
+      close: col(4),
+      volume: hasVolume ? col(5) : null,
+    };
+  }
+
+  /** Concatenates decoded tiles (in time order) and keeps the bars in [fromMs, toMs]. */
+  function joinColumns(parts, fromMs, toMs) {
+    let count = 0;
+    for (const p of parts) {
+      for (let i = 0; i < p.count; i++) if (p.time[i] >= fromMs && p.time[i] <= toMs) count++;
+    }
+    const out = {
+      count, pageNumber: 0, pageSize: count, totalPages: 1, totalElements: count,
+      time: new Float64Array(count), open: new Float64Array(count), high: new Float64Array(count),
+      low: new Float64Array(count), close: new Float64Array(count), volume: new Float64Array(count),
+    };
+    let j = 0;
+    for (const p of parts) {
+      for (let i = 0; i < p.count; i++) {
+        if (p.time[i] < fromMs || p.time[i] > toMs) continue;
+        out.time[j] = p.time[i];
+        out.open[j] = p.open[i];
+        out.high[j] = p.high[i];
+        out.low[j] = p.low[i];
+        out.close[j] = p.close[i];
+        out.volume[j] = p.volume ? p.volume[i] : 0;
+        j++;
+      }
+    }
+    return out;
+  }
+
+  function toPoints(cols) {
+    const points = new Array(cols.count);
+    for (let i = 0; i < cols.count; i++) {
+      points[i] = {
+        x: cols.time[i],
+        y: [cols.open[i], cols.high[i], cols.low[i], cols.close[i]],
+        volume: cols.volume ? cols.volume[i] : 0,
+      };
+    }
+    return points;
+  }
+
+  class ApiOHLCSource extends global.ChartDataSource {
+    constructor({ symbol = "BTC", interval = "1h", pageSize = 250, url = "/api/graph/candles", tileUrl = "/api/graph/tiles" }) {
+      super();
+      this.symbol = symbol.toUpperCase();
+      this.interval = interval;
+      this.pageSize = pageSize;
+      this.cursorMs = null;
+      this._url = url;
+      this._tileUrl = tileUrl;
+    }
+
+    setInterval(interval) {
+      this.interval = interval;
+      this.cursorMs = null;
+    }
+
+    async fetchOlder(limit = this.pageSize) {
+      const stepMs = INTERVAL_MS[this.interval];
+      if (!stepMs) throw new Error(`No candle tiles for interval ${this.interval}`);
+      const toMs = Number.isFinite(this.cursorMs) ? this.cursorMs - 1 : Date.now();
+      const fromMs = toMs - limit * stepMs;
+
+      // the window is cut from the fixed tiles that cover it, so it is the same URLs for everyone
+      const spanMs = stepMs * TILE_BARS;
+      const tiles = [];
+      for (let t = Math.floor(fromMs / spanMs); t <= Math.floor(toMs / spanMs); t++) tiles.push(this.fetchTile(t));
+      const cols = joinColumns(await Promise.all(tiles), fromMs, toMs);
+
+      this.cursorMs = cols.count ? cols.time[0] : fromMs;
+      return { points: toPoints(cols), cursorMs: this.cursorMs, columns: cols };
+    }
+
+    /** One tile: the TILE_BARS bars of this interval starting at index * TILE_BARS bars. */
+    async fetchTile(index) {
+      const url = `${this._tileUrl}/${encodeURIComponent(this.symbol)}/${encodeURIComponent(this.interval)}/${index}`;
+      const res = await fetch(url, { headers: { Accept: MEDIA_TYPE } });
+      if (!res.ok) throw new Error(`Candle tile ${res.status} ${res.statusText}`);
+      return decodeCandles(await res.arrayBuffer());
+    }
+
+    /**
+     * Live refresh: the bar opened at sinceMs as it is now plus any newer bars
+     * (a handful of candles instead of a whole page). truncated is set when sinceMs was too
+     * far back and only the newest bars came; the caller should reload its whole window.
+     */
+    async fetchSince(sinceMs) {
+      const res = await fetch(`${this._url}/delta`, {
+        method: "POST",
+        headers: { "Content-Type": "application/json", Accept: MEDIA_TYPE },
+        body: JSON.stringify({
+          symbol: this.symbol,
+          interval: this.interval,
+          since: new Date(sinceMs).toISOString(),
+        }),
+      });
+      if (!res.ok) throw new Error(`Candle delta ${res.status} ${res.statusText}`);
+
+      const cols = decodeCandles(await res.arrayBuffer());
+      return {
+        points: toPoints(cols),
+        columns: cols,
+        truncated: res.headers.get("X-Candles-Truncated") === "true",
+      };
+    }
+  }
+
+  /**
+   * Loads several windows in one round trip. requests: [{symbol, interval, from, to, ...}]
+   * (same fields as /api/graph/candles). Resolves to [{symbol, interval, page, error, stale}]
+   * in request order.
+   */
+  async function fetchBatch(requests, url = "/api/graph/candles/batch") {
+    const res = await fetch(url, {
+      method: "POST",
+      headers: { "Content-Type": "application/json", Accept: "application/json" },
+      body: JSON.stringify(requests),
+    });
+    if (!res.ok) throw new Error(`Candle batch ${res.status} ${res.statusText}`);
+    return res.json();
+  }
+
+  /**
+   * Several windows merged on the server onto one time axis. Resolves to
+   * [{name, error, data: [{x, y}]}], one per request, with missing values as null.
+   * fill: "previous" (default), "null" or "interpolate"; field: open|high|low|close|volume.
+   */
+  async function fetchAligned(requests, { fill, field } = {}, url = "/api/graph/candles/aligned") {
+    const res = await fetch(url, {
+      method: "POST",
+      headers: { "Content-Type": "application/json", Accept: "application/json" },
+      body: JSON.stringify({ series: requests, fill, field }),
+    });
+    if (!res.ok) throw new Error(`Candle aligned ${res.status} ${res.statusText}`);
+    const { time, columns } = await res.json();
+    return columns.map((col) => ({
+      name: col.name,
+      error: col.error,
+      data: time.map((t, i) => ({ x: t, y: col.values[i] })),
+    }));
+  }
+
+  ApiOHLCSource.decodeCandles = decodeCandles;
+  ApiOHLCSource.fetchBatch = fetchBatch;
+  ApiOHLCSource.fetchAligned = fetchAligned;
+  global.ApiOHLCSource = ApiOHLCSource;
+})(window);
@@ -9,7 +9,7 @@
       this.interval = interval;
       this.pageSize = pageSize;
       this.cursorMs = null;
-      this._base = "https://api.binance.com/api/v3/klines";
+      this._base = "/api/binance/klines";
     }
 
     setInterval(interval) {
@@ -22,7 +22,7 @@
         ? this.cursorMs - 1
         : Date.now();
 
-      const url = new URL(this._base);
+      const url = new URL(this._base, global.location.origin);
       url.searchParams.set("symbol", this.symbol);
       url.searchParams.set("interval", this.interval);
       url.searchParams.set("limit", String(Math.max(1, Math.min(1000, limit))));
@@ -30,7 +30,7 @@
 
       let res;
       try {
-        res = await fetch(url.toString(), { mode: "cors" });
+        res = await fetch(url.toString());
       } catch (err) {
         throw new Error(`Binance fetch error: ${err?.message || err}`);
       }
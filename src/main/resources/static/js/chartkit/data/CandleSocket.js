@@ -0,0 +1,68 @@
+/****************************************************
+ * ChartKit CandleSocket
+ * One WebSocket to /ws/candles shared by every chart on the page.
+ * subscribe(symbol, interval, onCandles) returns an unsubscribe function;
+ * onCandles receives points {x, y:[o,h,l,c]} for the open bar and newly closed bars.
+ ****************************************************/
+(function (global) {
+  const RECONNECT_MS = 3000;
+
+  class CandleSocket {
+    constructor(url = CandleSocket.defaultUrl()) {
+      this._url = url;
+      this._listeners = new Map(); // "BTC:1m" -> Set<callback>
+      this._ws = null;
+      this._connect();
+    }
+
+    static defaultUrl() {
+      const proto = global.location.protocol === "https:" ? "wss:" : "ws:";
+      return `${proto}//${global.location.host}/ws/candles`;
+    }
+
+    subscribe(symbol, interval, onCandles) {
+      const key = `${symbol.toUpperCase()}:${interval}`;
+      let set = this._listeners.get(key);
+      if (!set) {
+        set = new Set();
+        this._listeners.set(key, set);
+        this._send({ action: "subscribe", symbol, interval });
+      }
+      set.add(onCandles);
+
+      return () => {
+        set.delete(onCandles);
+        if (set.size === 0) {
+          this._listeners.delete(key);
+          this._send({ action: "unsubscribe", symbol, interval });
+        }
+      };
+    }
+
+    _connect() {
+      const ws = new WebSocket(this._url);
+      ws.onopen = () => {
+        for (const key of this._listeners.keys()) {
+          const [symbol, interval] = key.split(":");
+          ws.send(JSON.stringify({ action: "subscribe", symbol, interval }));
+        }
+      };
+      ws.onmessage = (ev) => {
+        const msg = JSON.parse(ev.data);
+        if (msg.type !== "candles") return;
+        const set = this._listeners.get(`${msg.symbol}:${msg.interval}`);
+        if (!set) return;
+        const points = msg.candles.map((c) => ({ x: Date.parse(c.x), y: c.y.slice(0, 4), volume: c.y[4] ?? 0 }));
+        set.forEach((cb) => cb(points));
+      };
+      ws.onclose = () => setTimeout(() => this._connect(), RECONNECT_MS);
+      this._ws = ws;
+    }
+
+    _send(cmd) {
+      if (this._ws && this._ws.readyState === WebSocket.OPEN) this._ws.send(JSON.stringify(cmd));
+    }
+  }
+
+  global.CandleSocket = CandleSocket;
+})(window);
@@ -5,6 +5,7 @@
   class ChartDataSource {
     // interface only
     // async fetchOlder(limit): returns { points, cursorMs? }
+    // async fetchSince(sinceMs) (optional): returns { points, truncated } from the bar at sinceMs on
     // setInterval(interval) (optional)
   }
   global.ChartDataSource = ChartDataSource;
@@ -6,6 +6,8 @@
     ChartKit: global.ChartKit,
     ChartDataSource: global.ChartDataSource,
     BinanceOHLCSource: global.BinanceOHLCSource,
+    ApiOHLCSource: global.ApiOHLCSource,
+    CandleSocket: global.CandleSocket,
     Utils: global.ChartKitUtils,
   };
 })(window);
@@ -1126,25 +1126,32 @@ _shiftBy(from, to, step, freeze) {
 
 		return `${mainCryptoLabel} ${timeLabel}${secondaryLabel}`;
 	}
+	// Merges on the x strings (the last point of a series with a given x wins). Each date is
+	// parsed once and only used to order the union; x values that do not parse go last.
 	alignMergeDataSets(data1, data2) {
+		const months = {
+			Jan: 0, Feb: 1, Mar: 2, Apr: 3, May: 4, Jun: 5,
+			Jul: 6, Aug: 7, Sep: 8, Oct: 9, Nov: 10, Dec: 11
+		};
 		const parseDate = (dateStr) => {
-			const [day, month, year] = dateStr.split('-');
-			const months = {
-				Jan: 0, Feb: 1, Mar: 2, Apr: 3, May: 4, Jun: 5,
-				Jul: 6, Aug: 7, Sep: 8, Oct: 9, Nov: 10, Dec: 11
-			};
-			return new Date(parseInt(year, 10), months[month], parseInt(day, 10));
+			const [day, month, year] = String(dateStr).split('-');
+			return new Date(parseInt(year, 10), months[month], parseInt(day, 10)).getTime();
 		};
 	
-		const allX = new Set([...data1.map(d => d.x), ...data2.map(d => d.x)]);
-		const sortedX = [...allX].sort((a, b) => parseDate(a) - parseDate(b));
-	
 		const d1Map = new Map(data1.map(item => [item.x, item.y]));
 		const d2Map = new Map(data2.map(item => [item.x, item.y]));
 	
-		const alignedData1 = [], alignedData2 = [];
+		const keys = [];
+		for (const x of new Set([...d1Map.keys(), ...d2Map.keys()])) {
+			const t = parseDate(x);
+			keys.push({ x, t: Number.isNaN(t) ? Infinity : t });
+		}
+		let sorted = true;
+		for (let i = 1; i < keys.length && sorted; i++) sorted = keys[i - 1].t <= keys[i].t;
+		if (!sorted) keys.sort((a, b) => (a.t === b.t ? 0 : a.t < b.t ? -1 : 1));
 	
-		for (const x of sortedX) {
+		const alignedData1 = [], alignedData2 = [];
+		for (const { x } of keys) {
 			const y1 = d1Map.has(x) ? d1Map.get(x) : null;
 			const y2 = d2Map.has(x) ? d2Map.get(x) : null;
 			if (!(y1 === null && y2 === null)) {
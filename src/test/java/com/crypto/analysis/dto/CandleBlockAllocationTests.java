@@ -0,0 +1,94 @@
+package com.crypto.analysis.dto;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+/**
+ * Compares what a 100k-bar page costs on the heap as {@code List<OhlcPoint>} and as a
+ * {@link CandleBlock}, both when built in memory and when decoded from upstream JSON.
+ */
+class CandleBlockAllocationTests {
+
+    private static final int BARS = 100_000;
+    private static final long START = Instant.parse("2020-01-01T00:00:00Z").toEpochMilli();
+
+    private final com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    @Test
+    void columnarPageAllocatesLessThanPointList() {
+        buildPoints();
+        buildBlock();   // warm up both paths first
+
+        long pointsBytes = allocated(this::buildPoints);
+        long blockBytes = allocated(this::buildBlock);
+
+        assertTrue(blockBytes * 2 < pointsBytes, "CandleBlock should need less than half the heap");
+    }
+
+    @Test
+    void decodingUpstreamJsonAllocatesLessThanPointList() throws Exception {
+        ObjectMapper mapper = new ObjectMapper().registerModule(new JavaTimeModule());
+        String json = "{\"content\":" + mapper.writeValueAsString(buildBlock()) + ",\"pageNumber\":0,\"pageSize\":"
+                + BARS + ",\"totalElements\":" + BARS + ",\"totalPages\":1}";
+        com.fasterxml.jackson.core.type.TypeReference<PagedResponse<OhlcPoint>> pointsType =
+                new com.fasterxml.jackson.core.type.TypeReference<PagedResponse<OhlcPoint>>() {};
+
+        PagedResponse<OhlcPoint> points = mapper.readValue(json, pointsType);
+        CandlePage page = mapper.readValue(json, CandlePage.class);
+        assertEquals(BARS, points.getContent().size());
+        assertEquals(BARS, page.getContent().size());
+        assertEquals(points.getContent().get(BARS - 1).getY()[3], page.getContent().close(BARS - 1));
+
+        long pointsBytes = allocated(() -> read(mapper, json, pointsType));
+        long blockBytes = allocated(() -> read(mapper, json, CandlePage.class));
+
+        assertTrue(blockBytes * 2 < pointsBytes, "decoding into CandleBlock should allocate less than half");
+    }
+
+    private Object buildPoints() {
+        List<OhlcPoint> points = new ArrayList<>(BARS);
+        for (int i = 0; i < BARS; i++) {
+            double p = 100 + i;
+            points.add(new OhlcPoint(Instant.ofEpochMilli(START + i * 60_000L), new double[] { p, p + 1, p - 1, p, 10 }));
+        }
+        return points;
+    }
+
+    private CandleBlock buildBlock() {
+        CandleBlock.Builder b = new CandleBlock.Builder(BARS);
+        for (int i = 0; i < BARS; i++) {
+            double p = 100 + i;
+            b.add(START + i * 60_000L, p, p + 1, p - 1, p, 10);
+        }
+        return b.build();
+    }
+
+    private static Object read(ObjectMapper mapper, String json, Object type) {
+        try {
+            if (type instanceof Class) return mapper.readValue(json, (Class<?>) type);
+            return mapper.readValue(json, (com.fasterxml.jackson.core.type.TypeReference<?>) type);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private long allocated(java.util.function.Supplier<Object> work) {
+        long tid = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(tid);
+        Object keep = work.get();
+        long after = threads.getThreadAllocatedBytes(tid);
+        assertTrue(keep != null);
+        return after - before;
+    }
+}
@@ -0,0 +1,40 @@
+package com.crypto.analysis.dto;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+/**
+ * {@link CandleBlock} has to read every {@code x} the way {@code OhlcPoint} did before it.
+ */
+class CandleBlockJsonTests {
+
+    @Test
+    void readsIsoInstants() throws Exception {
+        assertSameTime(new ObjectMapper().registerModule(new JavaTimeModule()), "\"2024-03-01T12:34:56.789Z\"");
+        assertSameTime(new ObjectMapper().registerModule(new JavaTimeModule()), "\"2024-03-01T12:34:56Z\"");
+    }
+
+    @Test
+    void readsNumericTimesLikeJackson() throws Exception {
+        ObjectMapper mapper = new ObjectMapper().registerModule(new JavaTimeModule());
+        assertSameTime(mapper, "1709296496");
+        assertSameTime(mapper, "1709296496.789");
+
+        ObjectMapper millis = new ObjectMapper().registerModule(new JavaTimeModule())
+                .disable(DeserializationFeature.READ_DATE_TIMESTAMPS_AS_NANOSECONDS);
+        assertSameTime(millis, "1709296496789");
+    }
+
+    private static void assertSameTime(ObjectMapper mapper, String x) throws Exception {
+        String json = "[{\"x\":" + x + ",\"y\":[1,2,0.5,1.5,10]}]";
+        OhlcPoint[] points = mapper.readValue(json, OhlcPoint[].class);
+        CandleBlock block = mapper.readValue(json, CandleBlock.class);
+        assertEquals(1, block.size());
+        assertEquals(points[0].getX().toEpochMilli(), block.time(0), x);
+    }
+}
@@ -0,0 +1,178 @@
+package com.crypto.analysis.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import reactor.core.publisher.Flux;
+
+/**
+ * Runs the proxy against a local stub of the exchange's klines endpoint.
+ */
+class BinanceKlineProxyTests {
+
+    private static final long HOUR = 3_600_000L;
+    private static final long WINDOW = 1000 * HOUR;
+
+    private HttpServer exchange;
+    private final AtomicInteger calls = new AtomicInteger();
+    private final AtomicReference<Integer> nextStatus = new AtomicReference<>();
+    private volatile CountDownLatch release = new CountDownLatch(0);
+    private BinanceKlineProxy proxy;
+
+    @BeforeEach
+    void startExchange() throws IOException {
+        exchange = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        exchange.createContext("/api/v3/klines", this::klines);
+        exchange.setExecutor(Executors.newCachedThreadPool());
+        exchange.start();
+        WebClient client = WebClient.create("http://127.0.0.1:" + exchange.getAddress().getPort());
+        proxy = new BinanceKlineProxy(client, new RequestCoalescer(), 64, 2000, 1200, 2000, 30000);
+    }
+
+    @AfterEach
+    void stopExchange() {
+        exchange.stop(0);
+    }
+
+    /** One bar per hour over [startTime, endTime]; a queued status is answered instead once. */
+    private void klines(HttpExchange ex) throws IOException {
+        calls.incrementAndGet();
+        try {
+            release.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        Integer status = nextStatus.getAndSet(null);
+        if (status != null) {
+            ex.getResponseHeaders().add("Retry-After", "60");
+            ex.sendResponseHeaders(status, -1);
+            ex.close();
+            return;
+        }
+        Map<String, String> q = query(ex.getRequestURI());
+        long start = Long.parseLong(q.get("startTime"));
+        long end = Math.min(Long.parseLong(q.get("endTime")), System.currentTimeMillis());
+        StringBuilder body = new StringBuilder("[");
+        for (long t = start; t <= end; t += HOUR) {
+            if (body.length() > 1) body.append(',');
+            body.append('[').append(t).append(",\"1\",\"2\",\"0.5\",\"1.5\",\"10\",").append(t + HOUR - 1)
+                .append(",\"15\",3,\"5\",\"7\",\"0\"]");
+        }
+        byte[] bytes = body.append(']').toString().getBytes(StandardCharsets.UTF_8);
+        ex.getResponseHeaders().add("Content-Type", "application/json");
+        ex.getResponseHeaders().add("X-MBX-USED-WEIGHT-1M", "2");
+        ex.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = ex.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    @Test
+    void closedWindowIsFetchedOnceAndSharedByOverlappingRanges() {
+        long end = 5 * WINDOW + 400 * HOUR;   // well in the past
+
+        List<List<Object>> a = proxy.klines("btcusdt", "1h", 100, end).block();
+        List<List<Object>> b = proxy.klines("BTCUSDT", "1h", 50, end - 20 * HOUR).block();
+
+        assertEquals(100, a.size());
+        assertEquals(end - 99 * HOUR, ((Number) a.get(0).get(0)).longValue());
+        assertEquals(end, ((Number) a.get(99).get(0)).longValue());
+        assertEquals(50, b.size());
+        assertEquals(1, calls.get(), "both ranges live in the same aligned window");
+    }
+
+    @Test
+    void servesRowsInTheExchangeFormat() {
+        long end = 5 * WINDOW + 400 * HOUR;
+
+        List<List<Object>> rows = proxy.klines("BTCUSDT", "1h", 2, end).block();
+
+        assertEquals(List.of(end, "1", "2", "0.5", "1.5", "10", end + HOUR - 1, "15", 3L, "5", "7", "0"),
+                rows.get(1));
+    }
+
+    @Test
+    void rangeCrossingAWindowBoundaryReadsBothWindows() {
+        long end = 5 * WINDOW + 10 * HOUR;
+
+        List<List<Object>> rows = proxy.klines("BTCUSDT", "1h", 30, end).block();
+
+        assertEquals(30, rows.size());
+        assertEquals(end - 29 * HOUR, ((Number) rows.get(0).get(0)).longValue());
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void concurrentMissesShareOneUpstreamCall() {
+        release = new CountDownLatch(1);
+        long end = 7 * WINDOW + 100 * HOUR;
+
+        Flux<List<List<Object>>> all = Flux.range(0, 8)
+                .flatMap(i -> proxy.klines("ETHUSDT", "1h", 5, end - i * HOUR))
+                .doOnSubscribe(s -> new Thread(() -> {
+                    sleep(300);
+                    release.countDown();
+                }).start());
+
+        assertEquals(8, all.collectList().block().size());
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void rateLimitStopsUpstreamCallsButServesCachedWindows() {
+        long cachedEnd = 3 * WINDOW + 10 * HOUR;
+        proxy.klines("BTCUSDT", "1h", 5, cachedEnd).block();
+
+        nextStatus.set(429);
+        ResponseStatusException first = assertThrows(ResponseStatusException.class,
+                () -> proxy.klines("BTCUSDT", "1h", 5, 9 * WINDOW + 10 * HOUR).block());
+        assertEquals(429, first.getRawStatusCode());
+        int afterLimit = calls.get();
+
+        assertThrows(ResponseStatusException.class,
+                () -> proxy.klines("BTCUSDT", "1h", 5, 11 * WINDOW + 10 * HOUR).block());
+        assertEquals(afterLimit, calls.get(), "no calls while backing off");
+        assertEquals(5, proxy.klines("BTCUSDT", "1h", 5, cachedEnd).block().size());
+        assertTrue(((Number) proxy.stats().get("blockedForMs")).longValue() > 50_000);
+    }
+
+    private static Map<String, String> query(URI uri) {
+        Map<String, String> q = new HashMap<>();
+        for (String pair : uri.getRawQuery().split("&")) {
+            int eq = pair.indexOf('=');
+            q.put(pair.substring(0, eq), pair.substring(eq + 1));
+        }
+        return q;
+    }
+
+    private static void sleep(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
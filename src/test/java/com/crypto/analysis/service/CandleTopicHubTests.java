@@ -0,0 +1,130 @@
+package com.crypto.analysis.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.security.Principal;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketExtension;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import com.crypto.analysis.dto.CandleBlock;
+import com.crypto.analysis.dto.CandlePage;
+import com.crypto.analysis.dto.GraphDataReqDTO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Pushes of {@link CandleTopicHub} to sessions that are slow or stalled.
+ */
+class CandleTopicHubTests {
+
+    /** Always answers the poll with one bar. */
+    private static final class StubChartService extends ChartService {
+        StubChartService() {
+            super(null, null, null, null, null, null, null, null, null, null, null, null);
+        }
+
+        @Override
+        public Mono<CandlePage> getDeltaAsync(GraphDataReqDTO req) {
+            CandleBlock.Builder b = new CandleBlock.Builder();
+            b.add(System.currentTimeMillis() / 60_000 * 60_000, 1, 2, 0.5, 1.5, 10);
+            CandleBlock bars = b.build();
+            return Mono.just(new CandlePage(bars, 0, 1, 1, 1));
+        }
+    }
+
+    /** A session whose sends either go through or, when {@code stall} is set, block until it is closed. */
+    private static final class StubSession implements WebSocketSession {
+        final String id;
+        final boolean stall;
+        final CountDownLatch sending = new CountDownLatch(1);
+        final CountDownLatch received = new CountDownLatch(1);
+        final CountDownLatch closed = new CountDownLatch(1);
+
+        StubSession(String id, boolean stall) {
+            this.id = id;
+            this.stall = stall;
+        }
+
+        @Override
+        public void sendMessage(WebSocketMessage<?> message) {
+            sending.countDown();
+            if (stall) {
+                try {
+                    closed.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                throw new IllegalStateException("closed while sending");
+            }
+            received.countDown();
+        }
+
+        @Override
+        public void close(CloseStatus status) {
+            closed.countDown();
+        }
+
+        @Override
+        public void close() {
+            close(CloseStatus.NORMAL);
+        }
+
+        @Override
+        public boolean isOpen() {
+            return closed.getCount() > 0;
+        }
+
+        @Override
+        public String getId() {
+            return id;
+        }
+
+        @Override public URI getUri() { return null; }
+        @Override public HttpHeaders getHandshakeHeaders() { return new HttpHeaders(); }
+        @Override public Map<String, Object> getAttributes() { return Collections.emptyMap(); }
+        @Override public Principal getPrincipal() { return null; }
+        @Override public InetSocketAddress getLocalAddress() { return null; }
+        @Override public InetSocketAddress getRemoteAddress() { return null; }
+        @Override public String getAcceptedProtocol() { return null; }
+        @Override public void setTextMessageSizeLimit(int messageSizeLimit) { }
+        @Override public int getTextMessageSizeLimit() { return 0; }
+        @Override public void setBinaryMessageSizeLimit(int messageSizeLimit) { }
+        @Override public int getBinaryMessageSizeLimit() { return 0; }
+        @Override public List<WebSocketExtension> getExtensions() { return Collections.emptyList(); }
+    }
+
+    @Test
+    void stalledSessionIsClosedAndOthersStillGetPushes() throws Exception {
+        CandleTopicHub hub = new CandleTopicHub(new StubChartService(), new DownsampleDecider(), new ObjectMapper(),
+                60_000, 1, 200, 65_536);
+        CandleTopicHub.Topic topic = hub.topic("BTC", "1m");
+
+        // the only send thread gets stuck on the first session
+        StubSession stalled = new StubSession("stalled", true);
+        hub.subscribe(stalled, topic);
+        assertTrue(stalled.sending.await(5, TimeUnit.SECONDS));
+
+        StubSession healthy = new StubSession("healthy", false);
+        hub.subscribe(healthy, topic);
+
+        assertTrue(healthy.received.await(5, TimeUnit.SECONDS));
+        assertFalse(stalled.isOpen());
+        assertEquals(1L, hub.stats().get("stalled"));
+        assertEquals(1, hub.stats().get("sessions"));
+    }
+}
@@ -0,0 +1,134 @@
+package com.crypto.analysis.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.crypto.analysis.dto.CandleBlock;
+import com.crypto.analysis.dto.CandlePage;
+import com.crypto.analysis.dto.GraphDataReqDTO;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Bulkhead, deadline and breaker of the gateway against a stubbed upstream client.
+ */
+class CandleUpstreamGatewayTests {
+
+    private static final CandlePage PAGE = new CandlePage(CandleBlock.EMPTY, 0, 0, 0, 1);
+
+    /** Answers every call with {@code answer}, counting calls and the most in flight at once. */
+    private static final class StubClient extends CandleUpstreamClient {
+        final AtomicInteger calls = new AtomicInteger();
+        final AtomicInteger inFlight = new AtomicInteger();
+        final AtomicInteger maxInFlight = new AtomicInteger();
+        volatile Function<Integer, Mono<CandlePage>> answer = n -> Mono.just(PAGE);
+
+        StubClient() {
+            super(null, null, "http://unused", 60_000);
+        }
+
+        @Override
+        public Mono<CandlePage> fetchAsync(GraphDataReqDTO req) {
+            return Mono.defer(() -> {
+                maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                return answer.apply(calls.incrementAndGet());
+            }).doOnTerminate(inFlight::decrementAndGet).doOnCancel(inFlight::decrementAndGet);
+        }
+    }
+
+    private static CandleUpstreamGateway gateway(StubClient client, long timeoutMs, int permits, long maxWaitMs,
+                                                 int failureThreshold, long openMs) {
+        return new CandleUpstreamGateway(client, timeoutMs, permits, maxWaitMs, 1, failureThreshold, openMs, false, 0.95);
+    }
+
+    @Test
+    void callsBeyondThePermitsWaitInsteadOfFailing() {
+        StubClient client = new StubClient();
+        client.answer = n -> Mono.delay(Duration.ofMillis(50)).thenReturn(PAGE);
+        CandleUpstreamGateway gateway = gateway(client, 5_000, 4, 5_000, 5, 10_000);
+
+        List<CandlePage> pages = Flux.range(0, 24)
+                .flatMap(i -> gateway.fetchAsync(GraphDataReqDTO.builder().symbol("BTC").page(i).build()), 24)
+                .collectList()
+                .block(Duration.ofSeconds(10));
+
+        assertEquals(24, pages.size());
+        assertEquals(4, client.maxInFlight.get());
+        assertEquals(0L, gateway.stats().get("bulkheadRejected"));
+    }
+
+    @Test
+    void waitingIsBoundedByMaxWait() {
+        StubClient client = new StubClient();
+        client.answer = n -> Mono.never();
+        CandleUpstreamGateway gateway = gateway(client, 5_000, 1, 50, 5, 10_000);
+
+        gateway.fetchAsync(GraphDataReqDTO.builder().symbol("BTC").build()).subscribe();
+        assertThrows(ResponseStatusException.class,
+                () -> gateway.fetchAsync(GraphDataReqDTO.builder().symbol("ETH").build()).block(Duration.ofSeconds(5)));
+        assertEquals(1L, gateway.stats().get("bulkheadRejected"));
+    }
+
+    @Test
+    void backgroundCallsNeverTakeInteractivePermits() {
+        StubClient client = new StubClient();
+        client.answer = n -> n == 1 ? Mono.never() : Mono.just(PAGE);
+        CandleUpstreamGateway gateway = gateway(client, 5_000, 1, 50, 5, 10_000);
+
+        gateway.fetchBackgroundAsync(GraphDataReqDTO.builder().symbol("BTC").build()).subscribe();
+        assertEquals(PAGE, gateway.fetchAsync(GraphDataReqDTO.builder().symbol("ETH").build()).block(Duration.ofSeconds(5)));
+        assertThrows(ResponseStatusException.class,
+                () -> gateway.fetchBackgroundAsync(GraphDataReqDTO.builder().symbol("SOL").build()).block(Duration.ofSeconds(5)));
+        assertEquals(1L, gateway.stats().get("backgroundRejected"));
+    }
+
+    @Test
+    void hungUpstreamCountsAsTimeoutAndOpensTheBreaker() {
+        StubClient client = new StubClient();
+        client.answer = n -> Mono.never();
+        CandleUpstreamGateway gateway = gateway(client, 50, 4, 1_000, 2, 60_000);
+
+        for (int i = 0; i < 2; i++) {
+            assertThrows(RuntimeException.class,
+                    () -> gateway.fetchAsync(GraphDataReqDTO.builder().symbol("BTC").build()).block(Duration.ofSeconds(5)));
+        }
+        Map<String, Object> stats = gateway.stats();
+        assertEquals(2L, stats.get("timeouts"));
+        assertEquals("OPEN", stats.get("breaker"));
+        assertEquals(0, stats.get("inFlight"));
+    }
+
+    @Test
+    void refusedProbeDoesNotWedgeTheBreaker() throws Exception {
+        StubClient client = new StubClient();
+        client.answer = n -> n == 1
+                ? Mono.delay(Duration.ofMillis(50)).then(Mono.error(new RuntimeException("down")))
+                : Mono.never();
+        CandleUpstreamGateway gateway = gateway(client, 5_000, 1, 100, 1, 50);
+
+        // the failing call opens the breaker; a caller queued behind it then holds the only permit
+        gateway.fetchAsync(GraphDataReqDTO.builder().symbol("BTC").build()).subscribe(p -> { }, e -> { });
+        gateway.fetchAsync(GraphDataReqDTO.builder().symbol("ETH").build()).subscribe(p -> { }, e -> { });
+        Thread.sleep(200);
+        assertEquals("OPEN", gateway.stats().get("breaker"));
+
+        // each probe after the open period finds the bulkhead full and is turned away as busy,
+        // without keeping the probe slot for itself
+        for (int i = 0; i < 2; i++) {
+            ResponseStatusException e = assertThrows(ResponseStatusException.class,
+                    () -> gateway.fetchAsync(GraphDataReqDTO.builder().symbol("SOL").build()).block(Duration.ofSeconds(5)));
+            assertEquals("Solr app busy: too many calls in flight", e.getReason());
+        }
+        assertEquals(0L, gateway.stats().get("breakerRejected"));
+    }
+}
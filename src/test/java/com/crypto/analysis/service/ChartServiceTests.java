@@ -0,0 +1,162 @@
+package com.crypto.analysis.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.crypto.analysis.dto.CandleBlock;
+import com.crypto.analysis.dto.CandlePage;
+import com.crypto.analysis.dto.GraphDataReqDTO;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Windows served by {@link ChartService} from a stubbed upstream that has one bar per gap.
+ */
+class ChartServiceTests {
+
+    private static final long MINUTE = 60_000L;
+    private static final long HOUR = 60 * MINUTE;
+    private static final DownsampleDecider DECIDER = new DownsampleDecider();
+
+    /**
+     * Answers every range with a bar per gap; bar {@code k} (counted from the epoch) opens at
+     * {@code k}, closes at {@code k + 0.5} and trades between {@code k - 1} and {@code k + 1}.
+     */
+    private static final class StubClient extends CandleUpstreamClient {
+        final List<GraphDataReqDTO> requests = new ArrayList<>();
+
+        StubClient() {
+            super(null, null, "http://unused", 60_000);
+        }
+
+        @Override
+        public Mono<CandlePage> fetchAsync(GraphDataReqDTO req) {
+            synchronized (requests) {
+                requests.add(req);
+            }
+            long gapMs = DECIDER.gapMillis(DECIDER.mapIntervalToGap(req.getInterval()));
+            long from = Math.floorDiv(req.getFrom().toEpochMilli() + gapMs - 1, gapMs) * gapMs;
+            CandleBlock.Builder bars = new CandleBlock.Builder();
+            for (long t = from; t <= req.getTo().toEpochMilli(); t += gapMs) {
+                double k = t / gapMs;
+                bars.add(t, k, k + 1, k - 1, k + 0.5, 1);
+            }
+            CandleBlock block = bars.build();
+            return Mono.just(new CandlePage(block, 0, block.size(), block.size(), 1));
+        }
+    }
+
+    private final StubClient client = new StubClient();
+    private final CandleCache cache = new CandleCache(4096);
+    private final CandleRollup rollup = new CandleRollup(cache, 2048);
+    private final ChartService service = new ChartService(
+            new CandleUpstreamGateway(client, 5_000, 16, 5_000, 4, 5, 10_000, false, 0.95),
+            DECIDER, cache, new RequestCoalescer(), rollup, new CandleDownsampler(),
+            new CandleVersionTracker(1024), new CandleStaleStore(16, 300_000, 1_500),
+            new CandleStore(DECIDER, false, ""), new SeriesAligner(), new CandleTransforms(16),
+            new IndicatorEngine(16, 10_000));
+
+    private CandleBlock load(GraphDataReqDTO req) {
+        return service.getCandlesAsync(req).block(Duration.ofSeconds(10)).getContent();
+    }
+
+    @Test
+    void downsamplesDescendingWindowsLikeAscendingOnes() {
+        Instant from = Instant.parse("2024-01-01T00:00:00Z");
+        GraphDataReqDTO asc = GraphDataReqDTO.builder()
+                .symbol("BTC")
+                .interval("1m")
+                .downsample(CandleDownsampler.MINMAX)
+                .targetPoints(10)
+                .from(from)
+                .to(from.plusMillis(100 * MINUTE - 1))
+                .isAsc(true)
+                .build();
+
+        CandleBlock up = load(asc);
+        CandleBlock down = load(asc.toBuilder().isAsc(false).build());
+
+        assertEquals(10, up.size());
+        long first = from.toEpochMilli() / MINUTE;
+        // a merged bar opens with its oldest bar and closes with its newest one
+        assertEquals(from.toEpochMilli(), up.time(0));
+        assertEquals(first, up.open(0));
+        assertEquals(first + 9.5, up.close(0));
+        assertEquals(first + 10, up.high(0));
+        assertEquals(first - 1, up.low(0));
+
+        assertEquals(up.size(), down.size());
+        for (int i = 0; i < up.size(); i++) {
+            int j = up.size() - 1 - i;
+            assertEquals(up.time(i), down.time(j));
+            assertEquals(up.open(i), down.open(j));
+            assertEquals(up.close(i), down.close(j));
+        }
+    }
+
+    @Test
+    void descendingLttbKeepsTheEndpoints() {
+        Instant from = Instant.parse("2024-01-01T00:00:00Z");
+        GraphDataReqDTO desc = GraphDataReqDTO.builder()
+                .symbol("BTC")
+                .interval("1m")
+                .downsample(CandleDownsampler.LTTB)
+                .targetPoints(10)
+                .from(from)
+                .to(from.plusMillis(100 * MINUTE - 1))
+                .build();
+
+        CandleBlock down = load(desc);
+
+        assertEquals(10, down.size());
+        assertEquals(from.toEpochMilli() + 99 * MINUTE, down.time(0));
+        assertEquals(from.toEpochMilli(), down.time(9));
+        for (int i = 1; i < down.size(); i++) assertEquals(true, down.time(i) < down.time(i - 1));
+    }
+
+    @Test
+    void switchingRecentBarsFrom1mTo1hRollsUpTheCachedMinutes() {
+        long now = System.currentTimeMillis();
+        long hourBefore = Math.floorDiv(now, HOUR) * HOUR;
+        Instant to = Instant.ofEpochMilli(now);
+        load(GraphDataReqDTO.builder()
+                .symbol("BTC").interval("1m").downsample("1m")
+                .from(to.minus(Duration.ofDays(2))).to(to).isAsc(true)
+                .build());
+        // the 1m segments loaded above reach back to the start of the oldest one
+        long minuteSpan = MINUTE * CandleCache.BARS_PER_SEGMENT;
+        long runFrom = Math.floorDiv(now - Duration.ofDays(2).toMillis(), minuteSpan) * minuteSpan;
+        long rolledFrom = Math.floorDiv(runFrom + HOUR - 1, HOUR) * HOUR;
+        client.requests.clear();
+
+        CandleBlock hours = load(GraphDataReqDTO.builder()
+                .symbol("BTC").interval("1h").downsample("1h")
+                .from(to.minus(Duration.ofDays(1))).to(to).isAsc(true)
+                .build());
+
+        // upstream is only asked for 1h bars before the cached minutes and for the open hour
+        assertEquals(true, !client.requests.isEmpty());
+        for (GraphDataReqDTO r : client.requests) {
+            assertEquals("1h", r.getInterval());
+            long from = r.getFrom().toEpochMilli(), until = r.getTo().toEpochMilli() + 1;
+            assertEquals(true, until <= rolledFrom || from >= hourBefore, r.getFrom() + " .. " + r.getTo());
+        }
+        // rolled up from the stub's minute bars: each hour opens with its first minute
+        int checked = 0;
+        for (int i = 0; i < hours.size(); i++) {
+            long t = hours.time(i);
+            if (t < rolledFrom || t >= hourBefore) continue;
+            assertEquals(t / MINUTE, hours.open(i));
+            assertEquals((t + HOUR) / MINUTE - 1 + 0.5, hours.close(i));
+            checked++;
+        }
+        assertEquals(true, checked >= 23, "hours checked: " + checked);
+        assertEquals(true, (Long) rollup.stats().get("derivedBars") > 0);
+    }
+}
@@ -0,0 +1,106 @@
+package com.crypto.analysis.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import org.junit.jupiter.api.Test;
+
+import com.crypto.analysis.dto.CandleBlock;
+import com.crypto.analysis.mail.service.EmailService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Topic listeners and crossings of {@link LineAlertEngine} against a stubbed hub and mailer.
+ */
+class LineAlertEngineTests {
+
+    private static final long MINUTE = 60_000L;
+
+    /** Records listeners instead of polling. */
+    private static final class StubHub extends CandleTopicHub {
+        final Map<Topic, Consumer<CandleBlock>> listeners = new HashMap<>();
+        int unlistened;
+
+        StubHub() {
+            super(null, new DownsampleDecider(), null, 60_000, 1, 5_000, 65_536);
+        }
+
+        @Override
+        public void listen(Topic topic, Consumer<CandleBlock> listener) {
+            listeners.put(topic, listener);
+        }
+
+        @Override
+        public void unlisten(Topic topic, Consumer<CandleBlock> listener) {
+            if (listeners.remove(topic, listener)) unlistened++;
+        }
+    }
+
+    private static final class StubMail extends EmailService {
+        final List<String> sent = new ArrayList<>();
+
+        @Override
+        public void sendAlert(String userName, String subject, String text) {
+            sent.add(userName + ": " + subject);
+        }
+    }
+
+    private final StubHub hub = new StubHub();
+    private final StubMail mail = new StubMail();
+    private final LineAlertEngine engine = new LineAlertEngine(hub, new DownsampleDecider(), null, mail,
+            new ObjectMapper(), "1m", 3_600_000L, new String[] { "BTC", "ETH" });
+
+    private static CandleBlock closes(long from, double... closes) {
+        int n = closes.length;
+        long[] t = new long[n];
+        double[] v = new double[n];
+        for (int i = 0; i < n; i++) t[i] = from + i * MINUTE;
+        return new CandleBlock(n, t, closes.clone(), closes.clone(), closes.clone(), closes.clone(), v);
+    }
+
+    @Test
+    void ignoresUnsupportedSymbols() {
+        engine.replace("alice", "doge", List.of(LineAlertEngine.AlertLine.level("Start 1", 0, 1)));
+
+        assertEquals(0, hub.listeners.size());
+        assertEquals(0, engine.stats().get("symbols"));
+    }
+
+    @Test
+    void stopsListeningWhenTheLastLinesAreRemoved() {
+        engine.replace("alice", "btc", List.of(LineAlertEngine.AlertLine.level("Start 100", 0, 100)));
+        engine.replace("bob", "BTC", List.of(LineAlertEngine.AlertLine.level("End 200", 0, 200)));
+        CandleTopicHub.Topic topic = hub.topic("BTC", "1m");
+        Consumer<CandleBlock> listener = hub.listeners.get(topic);
+
+        engine.remove("alice", "BTC");
+        assertSame(listener, hub.listeners.get(topic));
+
+        engine.remove("bob", "BTC");
+        assertNull(hub.listeners.get(topic));
+        assertEquals(1, hub.unlistened);
+        assertEquals(0, engine.stats().get("symbols"));
+
+        engine.replace("alice", "BTC", List.of(LineAlertEngine.AlertLine.level("Start 100", 0, 100)));
+        assertEquals(1, hub.listeners.size());
+    }
+
+    @Test
+    void mailsTheOwnerWhenAClosedBarCrossesALine() {
+        engine.replace("alice", "BTC", List.of(LineAlertEngine.AlertLine.level("Start 100", 0, 100)));
+        engine.replace("bob", "BTC", List.of(LineAlertEngine.AlertLine.level("End 200", 0, 200)));
+        Consumer<CandleBlock> listener = hub.listeners.get(hub.topic("BTC", "1m"));
+
+        long start = (System.currentTimeMillis() / MINUTE - 10) * MINUTE;
+        listener.accept(closes(start, 95, 99, 101, 150));
+
+        assertEquals(List.of("alice: BTC closed above Start 100"), mail.sent);
+    }
+}
@@ -0,0 +1,72 @@
+package com.crypto.analysis.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Stabbing queries of {@link PriceIntervalIndex} against a linear scan.
+ */
+class PriceIntervalIndexTests {
+
+    private static List<Integer> query(PriceIntervalIndex index, double from, double to) {
+        List<Integer> hits = new ArrayList<>();
+        index.query(from, to, hits::add);
+        hits.sort(null);
+        return hits;
+    }
+
+    @Test
+    void reportsOverlappingIntervalsWithInclusiveBounds() {
+        PriceIntervalIndex index = new PriceIntervalIndex(
+                new double[] { 10, 20, 30, 15 },
+                new double[] { 12, 25, 30, 40 },
+                new int[] { 0, 1, 2, 3 }, 4);
+
+        assertEquals(List.of(0), query(index, 12, 14));          // touches the end of 0
+        assertEquals(List.of(0, 3), query(index, 12, 15));       // and the start of 3
+        assertEquals(List.of(1, 3), query(index, 25, 25));       // a single price
+        assertEquals(List.of(2, 3), query(index, 30, 31));       // a point interval
+        assertEquals(List.of(), query(index, 41, 50));
+        assertEquals(List.of(), query(index, 0, 9.99));
+        assertEquals(List.of(0, 1, 2, 3), query(index, 0, 100));
+    }
+
+    @Test
+    void usesOnlyTheFirstSizeEntries() {
+        PriceIntervalIndex index = new PriceIntervalIndex(
+                new double[] { 1, 2, 3 }, new double[] { 1, 2, 3 }, new int[] { 7, 8, 9 }, 2);
+
+        assertEquals(2, index.size());
+        assertEquals(List.of(7, 8), query(index, 0, 10));
+        assertEquals(List.of(), query(new PriceIntervalIndex(new double[0], new double[0], new int[0], 0), 0, 10));
+    }
+
+    @Test
+    void matchesALinearScan() {
+        Random random = new Random(42);
+        int n = 300;
+        double[] lo = new double[n], hi = new double[n];
+        int[] ids = new int[n];
+        for (int i = 0; i < n; i++) {
+            double a = random.nextInt(1000), b = a + random.nextInt(50);
+            lo[i] = a;
+            hi[i] = b;
+            ids[i] = i;
+        }
+        PriceIntervalIndex index = new PriceIntervalIndex(lo, hi, ids, n);
+
+        for (int q = 0; q < 200; q++) {
+            double from = random.nextInt(1100) - 50, to = from + random.nextInt(30);
+            List<Integer> expected = new ArrayList<>();
+            for (int i = 0; i < n; i++) {
+                if (lo[i] <= to && hi[i] >= from) expected.add(i);
+            }
+            assertEquals(expected, query(index, from, to), from + ".." + to);
+        }
+    }
+}
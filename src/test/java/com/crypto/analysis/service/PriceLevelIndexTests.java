@@ -0,0 +1,89 @@
+package com.crypto.analysis.service;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Which thresholds a price move crosses in {@link PriceLevelIndex}, and that crossed ones are gone.
+ */
+class PriceLevelIndexTests {
+
+    private static long[] sorted(long[] ids) {
+        long[] copy = ids.clone();
+        Arrays.sort(copy);
+        return copy;
+    }
+
+    @Test
+    void riseTakesAboveThresholdsInHalfOpenRange() {
+        PriceLevelIndex index = new PriceLevelIndex();
+        index.add(1, true, 100);
+        index.add(2, true, 105);
+        index.add(3, true, 110);
+        index.add(4, true, 111);
+        index.add(5, false, 105);
+
+        // (100, 110]: the start price is not a crossing, the end price is
+        assertArrayEquals(new long[] { 2, 3 }, sorted(index.cross(100, 110)));
+        assertEquals(3, index.size());
+        assertArrayEquals(new long[0], index.cross(100, 110));
+        assertArrayEquals(new long[] { 4 }, index.cross(110, 120));
+    }
+
+    @Test
+    void fallTakesBelowThresholdsInHalfOpenRange() {
+        PriceLevelIndex index = new PriceLevelIndex();
+        index.add(1, false, 90);
+        index.add(2, false, 95);
+        index.add(3, false, 100);
+        index.add(4, true, 95);
+
+        // [90, 100): the end price is a crossing, the start price is not
+        assertArrayEquals(new long[] { 1, 2 }, sorted(index.cross(100, 90)));
+        assertArrayEquals(new long[] { 3 }, index.cross(101, 99));
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    void noMoveCrossesNothing() {
+        PriceLevelIndex index = new PriceLevelIndex();
+        index.add(1, true, 100);
+        index.add(2, false, 100);
+
+        assertArrayEquals(new long[0], index.cross(100, 100));
+        assertEquals(2, index.size());
+    }
+
+    @Test
+    void takesWholeRunsOfEqualPrices() {
+        PriceLevelIndex index = new PriceLevelIndex();
+        for (long id = 0; id < 40; id++) index.add(id, true, 100 + id % 4);
+
+        long[] taken = index.cross(99, 101);
+        assertEquals(20, taken.length);
+        for (long id : taken) assertTrue(id % 4 == 0 || id % 4 == 1, "id " + id);
+        assertEquals(20, index.size());
+        assertEquals(20, index.cross(101, 103).length);
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    void removeTakesOnlyTheMatchingId() {
+        PriceLevelIndex index = new PriceLevelIndex();
+        index.add(1, true, 100);
+        index.add(2, true, 100);
+        index.add(3, true, 100);
+
+        assertTrue(index.remove(2, true, 100));
+        assertFalse(index.remove(2, true, 100));
+        assertFalse(index.remove(1, false, 100));
+        assertFalse(index.remove(1, true, 99));
+        assertArrayEquals(new long[] { 1, 3 }, sorted(index.cross(99, 100)));
+    }
+}